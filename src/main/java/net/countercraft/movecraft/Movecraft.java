@@ -37,6 +37,7 @@ import net.countercraft.movecraft.listener.CommandListener;
 import net.countercraft.movecraft.listener.InteractListener;
 import net.countercraft.movecraft.listener.PlayerListener;
 import net.countercraft.movecraft.listener.WorldEditInteractListener;
+import net.countercraft.movecraft.listener.WorldListener;
 import net.countercraft.movecraft.localisation.I18nSupport;
 import net.countercraft.movecraft.metrics.MovecraftMetrics;  
 import net.countercraft.movecraft.utils.MapUpdateManager;
@@ -176,9 +177,18 @@ public class Movecraft extends JavaPlugin {
 		Settings.ManOverBoardTimeout = getConfig().getInt("ManOverBoardTimeout", 30);
 		Settings.SilhouetteViewDistance = getConfig().getInt("SilhouetteViewDistance", 200);
 		Settings.SilhouetteBlockCount = getConfig().getInt("SilhouetteBlockCount", 20);
+		Settings.SilhouetteParticleBudget = getConfig().getInt("SilhouetteParticleBudget", 400);
 		Settings.FireballLifespan = getConfig().getInt("FireballLifespan", 6);
 		Settings.FireballPenetration = getConfig().getBoolean("FireballPenetration", true);
 		Settings.BlockQueueChunkSize = getConfig().getInt("BlockQueueChunkSize", 1000);
+		Settings.MapUpdateTickBudget = getConfig().getInt("MapUpdateTickBudget", 25);
+		Settings.LightUpdateTickBudget = getConfig().getInt("LightUpdateTickBudget", 5);
+		Settings.LightUpdateDelay = getConfig().getInt("LightUpdateDelay", 250);
+		Settings.SectionResendThreshold = getConfig().getInt("SectionResendThreshold", 64);
+		Settings.CruiseCorridorSteps = getConfig().getInt("CruiseCorridorSteps", 4);
+		Settings.UnobservedCruiseStepMultiplier = getConfig().getInt("UnobservedCruiseStepMultiplier", 4);
+		Settings.ChunkPrefetchSteps = getConfig().getInt("ChunkPrefetchSteps", 16);
+		Settings.ChunkPinMargin = getConfig().getInt("ChunkPinMargin", 1);
 		Settings.ProtectPilotedCrafts = getConfig().getBoolean("ProtectPilotedCrafts", false);
 		Settings.AllowCrewSigns = getConfig().getBoolean("AllowCrewSigns", true);
 		Settings.SetHomeToCrewSign = getConfig().getBoolean("SetHomeToCrewSign", true);
@@ -415,6 +425,8 @@ public class Movecraft extends JavaPlugin {
 					this);
 			getServer().getPluginManager().registerEvents(new PlayerListener(),
 					this);
+			getServer().getPluginManager().registerEvents(new WorldListener(),
+					this);
 			
 			if(Settings.DisableCrates==false) {
 				StorageChestItem.readFromDisk();
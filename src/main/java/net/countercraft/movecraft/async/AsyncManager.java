@@ -29,8 +29,9 @@ import net.countercraft.movecraft.listener.CommandListener;
 import net.countercraft.movecraft.listener.WorldEditInteractListener;
 import net.countercraft.movecraft.localisation.I18nSupport;
 import net.countercraft.movecraft.utils.BlockUtils;
+import net.countercraft.movecraft.utils.ChunkPrefetcher;
 import net.countercraft.movecraft.utils.EntityUpdateCommand;
-//import net.countercraft.movecraft.utils.FastBlockChanger;
+import net.countercraft.movecraft.utils.FastBlockChanger;
 import net.countercraft.movecraft.utils.MapUpdateCommand;
 import net.countercraft.movecraft.utils.MapUpdateManager;
 import net.countercraft.movecraft.utils.MathUtils;
@@ -94,6 +95,7 @@ public class AsyncManager extends BukkitRunnable {
 	private HashMap<org.bukkit.entity.SmallFireball, Long> FireballTracking = new HashMap<org.bukkit.entity.SmallFireball, Long>();
 	private final BlockingQueue<AsyncTask> finishedAlgorithms = new LinkedBlockingQueue<AsyncTask>();
 	private final HashSet<Craft> clearanceSet = new HashSet<Craft>();
+	private final HashMap<World, List<AsyncTask>> projectileBatches = new HashMap<World, List<AsyncTask>>();
 	private long lastTracerUpdate = 0;
 	private long lastFireballCheck = 0;
 	private long lastTNTContactCheck = 0;
@@ -115,10 +117,40 @@ public class AsyncManager extends BukkitRunnable {
 		if (c.isNotProcessing()) {
 			c.setProcessing(true);
 			ownershipMap.put(task, c);
+			// projectiles are small and there can be dozens of them, so they share one task per world
+			if (c.getType().getCruiseOnPilot()) {
+				List<AsyncTask> batch = projectileBatches.get(c.getW());
+				if (batch == null) {
+					batch = new ArrayList<AsyncTask>();
+					projectileBatches.put(c.getW(), batch);
+				}
+				batch.add(task);
+				return;
+			}
 			task.runTaskAsynchronously(Movecraft.getInstance());
 		}
 	}
 
+	/**
+	 * Runs the tasks of the projectile crafts submitted since the last call, one asynchronous task per world
+	 * running them one after another, instead of scheduling a task for every step of every projectile
+	 */
+	public void submitProjectileBatches() {
+		if (projectileBatches.isEmpty())
+			return;
+		for (final List<AsyncTask> batch : projectileBatches.values()) {
+			new BukkitRunnable() {
+				@Override
+				public void run() {
+					for (AsyncTask task : batch) {
+						task.run();
+					}
+				}
+			}.runTaskAsynchronously(Movecraft.getInstance());
+		}
+		projectileBatches.clear();
+	}
+
 	public void submitCompletedTask(AsyncTask task) {
 		finishedAlgorithms.add(task);
 	}
@@ -258,6 +290,7 @@ public class AsyncManager extends BukkitRunnable {
 						}
 						if (!failed) {
 							c.setBlockList(data.getBlockList());
+							c.setFurnaceList(data.getFurnaceList());
 							c.setOrigBlockCount(data.getBlockList().length);
 							c.setHitBox(data.getHitBox());
 							c.setMinX(data.getMinX());
@@ -313,6 +346,7 @@ public class AsyncManager extends BukkitRunnable {
 
 					if (task.getData().collisionExplosion()) {
 						MapUpdateCommand[] updates = task.getData().getUpdates();
+						c.clearCorridor();
 						c.setBlockList(task.getData().getBlockList());
 						c.setScheduledBlockChanges(task.getData().getScheduledBlockChanges());
 						boolean failed = MapUpdateManager.getInstance().addWorldUpdate(c.getW(), updates, null, null);
@@ -332,8 +366,10 @@ public class AsyncManager extends BukkitRunnable {
 					ItemDropUpdateCommand[] iUpdates = task.getData().getItemDropUpdateCommands();
 					// get list of cannons before sending map updates, to avoid
 					// conflicts
+					// (projectiles don't carry cannons)
 					HashSet<Cannon> shipCannons = null;
-					if (Movecraft.getInstance().getCannonsPlugin() != null && c.getNotificationPlayer() != null) {
+					if (Movecraft.getInstance().getCannonsPlugin() != null && c.getNotificationPlayer() != null
+							&& !c.getType().getCruiseOnPilot()) {
 						// convert blocklist to location list
 						List<Location> shipLocations = new ArrayList<Location>();
 						for (MovecraftLocation loc : c.getBlockList()) {
@@ -353,6 +389,16 @@ public class AsyncManager extends BukkitRunnable {
 						c.setMinX(task.getData().getMinX());
 						c.setMinZ(task.getData().getMinZ());
 						c.setHitBox(task.getData().getHitbox());
+						c.translateFurnaces(task.getData().getDx(), task.getData().getDy(), task.getData().getDz());
+						c.translatePendingMoves(task.getData().getDx(), task.getData().getDy(), task.getData().getDz());
+						c.setLastUpdateReduction(task.getData().getUpdateReduction());
+						// a move that didn't come out of the corridor cache leaves the cache behind the craft
+						if (!task.getData().isCorridorStep()) {
+							c.clearCorridor();
+						}
+						if (Settings.Debug) {
+							Movecraft.getInstance().getServer().broadcastMessage("Translation skipped (%): " + task.getData().getUpdateReduction());
+						}
 
 						// move any cannons that were present
 						if (Movecraft.getInstance().getCannonsPlugin() != null && shipCannons != null) {
@@ -416,16 +462,27 @@ public class AsyncManager extends BukkitRunnable {
 							c.setMinX(task.getMinX());
 							c.setMinZ(task.getMinZ());
 							c.setHitBox(task.getHitbox());
+							for (int turn = 0; turn < task.getTurns(); turn++) {
+								c.rotateFurnaces(task.getRotation(), task.getOriginPoint(), null);
+							}
+							c.rotatePendingMoves(task.getRotation(), task.getTurns(), task.getOriginPoint());
+							c.translateFurnaces(task.getDx(), task.getDy(), task.getDz());
+							c.translatePendingMoves(task.getDx(), task.getDy(), task.getDz());
+							c.clearCorridor();
 
 							// rotate any cannons that were present
 							if (Movecraft.getInstance().getCannonsPlugin() != null && shipCannons != null) {
 								Location tloc = new Location(task.getCraft().getW(), task.getOriginPoint().getX(),
 										task.getOriginPoint().getY(), task.getOriginPoint().getZ());
 								for (Cannon can : shipCannons) {
-									if (task.getRotation() == net.countercraft.movecraft.utils.Rotation.CLOCKWISE)
-										can.rotateRight(tloc.toVector());
-									if (task.getRotation() == net.countercraft.movecraft.utils.Rotation.ANTICLOCKWISE)
-										can.rotateLeft(tloc.toVector());
+									for (int turn = 0; turn < task.getTurns(); turn++) {
+										if (task.getRotation() == net.countercraft.movecraft.utils.Rotation.CLOCKWISE)
+											can.rotateRight(tloc.toVector());
+										if (task.getRotation() == net.countercraft.movecraft.utils.Rotation.ANTICLOCKWISE)
+											can.rotateLeft(tloc.toVector());
+									}
+									if (task.getDx() != 0 || task.getDy() != 0 || task.getDz() != 0)
+										can.move(new Vector(task.getDx(), task.getDy(), task.getDz()));
 								}
 							}
 						} else {
@@ -449,152 +506,187 @@ public class AsyncManager extends BukkitRunnable {
 		}
 	}
 
+	/**
+	 * @return false if the craft is hibernating until the chunks it moves into are loaded, a craft that somebody
+	 *         came close to is woken up
+	 */
+	private boolean isAwake(Craft c) {
+		if (!c.isHibernating())
+			return true;
+		if (!c.isObserved())
+			return false;
+		c.wake();
+		return true;
+	}
+
 	public void processCruise() {
 		for (World w : Bukkit.getWorlds()) {
 			if (w != null && CraftManager.getInstance().getCraftsInWorld(w) != null) {
 				for (Craft pcraft : CraftManager.getInstance().getCraftsInWorld(w)) {
-					if ((pcraft != null) && pcraft.isNotProcessing()) {
-						if (pcraft.getCruising()) {
-							long ticksElapsed = (System.currentTimeMillis() - pcraft.getLastCruiseUpdate()) / 50;
+					if (pcraft != null) {
+						processCruise(pcraft);
+					}
+				}
+			}
+		}
 
-							// if the craft should go slower underwater, make
-							// time pass more slowly there
-							if (pcraft.getType().getHalfSpeedUnderwater() && pcraft.getMinY() < w.getSeaLevel())
-								ticksElapsed = ticksElapsed >> 1;
-							if(pcraft.getType().getDynamicLagSpeedFactor()>0.0) { // craft speed should depend on how much lag it generates (IE: how many updates)
-								if(MapUpdateManager.getInstance().blockUpdatesPerCraft!=null) { 
-									Integer numUpdates=MapUpdateManager.getInstance().blockUpdatesPerCraft.get(pcraft);
-									if(numUpdates!=null && numUpdates!=0) { // this will only be true right after a move for this craft, so this doesn't get executed TOO often
-										double speedMultiplier = ((double) pcraft.getBlockList().length) / numUpdates;
-										speedMultiplier = Math.sqrt(speedMultiplier);
-										speedMultiplier = speedMultiplier * pcraft.getType().getDynamicLagSpeedFactor();
-										double newMaxSpeed = 20.0 / pcraft.getType().getCruiseTickCooldown(); // get current base speed in bps
-										newMaxSpeed = newMaxSpeed * speedMultiplier;
-										pcraft.setMaxSpeed(newMaxSpeed);
-										if(pcraft.getCurSpeed()>newMaxSpeed) // if craft is going too fast, slow it down. This usually happens after a turn or manuevre
-											pcraft.setCurSpeed(newMaxSpeed);
-									}
-								}
-							}
-							if (Math.abs(ticksElapsed) >= pcraft.getCurTickCooldown()) {
-								int dx = 0;
-								int dz = 0;
-								int dy = 0;
+	}
 
-								// ascend
-								if (pcraft.getCruiseDirection() == 0x42) {
-									dy = 0 + 1 + pcraft.getType().getVertCruiseSkipBlocks();
-								}
-								// descend
-								if (pcraft.getCruiseDirection() == 0x43) {
-									dy = 0 - 1 - pcraft.getType().getVertCruiseSkipBlocks();
-									if (pcraft.getMinY() <= w.getSeaLevel())
-										dy = -1;
-								}
-								// ship faces west
-								if (pcraft.getCruiseDirection() == 0x5) {
-									dx = 0 - 1 - pcraft.getType().getCruiseSkipBlocks();
-								}
-								// ship faces east
-								if (pcraft.getCruiseDirection() == 0x4) {
-									dx = 1 + pcraft.getType().getCruiseSkipBlocks();
-								}
-								// ship faces north
-								if (pcraft.getCruiseDirection() == 0x2) {
-									dz = 1 + pcraft.getType().getCruiseSkipBlocks();
-								}
-								// ship faces south
-								if (pcraft.getCruiseDirection() == 0x3) {
-									dz = 0 - 1 - pcraft.getType().getCruiseSkipBlocks();
-								}
-								if (pcraft.getType().getCruiseOnPilot())
-									dy = pcraft.getType().getCruiseOnPilotVertMove();
-								pcraft.translate(dx, dy, dz);
-								pcraft.setLastDX(dx);
-								pcraft.setLastDZ(dz);
-								if (pcraft.getLastCruiseUpdate() != -1) {
-									pcraft.setLastCruisUpdate(System.currentTimeMillis());
-								} else {
-									pcraft.setLastCruisUpdate(System.currentTimeMillis()-30000);
-								}
-								
-								if(pcraft.getCurSpeed()<pcraft.getMaxSpeed()) {  // increase velocity of cruising craft and logarithmically approach maxspeed
-									double difference=pcraft.getMaxSpeed()-pcraft.getCurSpeed();
-									double newSpeed=pcraft.getCurSpeed();
-									if(difference/10.0 < 0.01)
-										newSpeed+=0.01;
-									else
-										newSpeed+=difference/10.0;
-									pcraft.setCurSpeed(newSpeed);
-								}
-							}
+	/**
+	 * Submits the next cruise step for the craft if it is idle and its cooldown has passed. Besides the
+	 * regular pass at the start of every tick, the MapUpdateManager calls this as soon as it has applied a
+	 * move, so the next step is computed while the rest of the tick runs instead of waiting a whole tick
+	 * for the craft to be picked up again
+	 *
+	 * @param pcraft - the craft to move
+	 */
+	public void processCruise(Craft pcraft) {
+		World w = pcraft.getW();
+		if (pcraft.isNotProcessing()) {
+			if (pcraft.getCruising() && isAwake(pcraft)) {
+				long ticksElapsed = (System.currentTimeMillis() - pcraft.getLastCruiseUpdate()) / 50;
+
+				// if the craft should go slower underwater, make
+				// time pass more slowly there
+				if (pcraft.getType().getHalfSpeedUnderwater() && pcraft.getMinY() < w.getSeaLevel())
+					ticksElapsed = ticksElapsed >> 1;
+				if(pcraft.getType().getDynamicLagSpeedFactor()>0.0) { // craft speed should depend on how much lag it generates (IE: how many updates)
+					if(MapUpdateManager.getInstance().blockUpdatesPerCraft!=null) { 
+						Integer numUpdates=MapUpdateManager.getInstance().blockUpdatesPerCraft.get(pcraft);
+						if(numUpdates!=null && numUpdates!=0) { // this will only be true right after a move for this craft, so this doesn't get executed TOO often
+							double speedMultiplier = ((double) pcraft.getBlockList().length) / numUpdates;
+							speedMultiplier = Math.sqrt(speedMultiplier);
+							speedMultiplier = speedMultiplier * pcraft.getType().getDynamicLagSpeedFactor();
+							double newMaxSpeed = 20.0 / pcraft.getType().getCruiseTickCooldown(); // get current base speed in bps
+							newMaxSpeed = newMaxSpeed * speedMultiplier;
+							pcraft.setMaxSpeed(newMaxSpeed);
+							if(pcraft.getCurSpeed()>newMaxSpeed) // if craft is going too fast, slow it down. This usually happens after a turn or manuevre
+								pcraft.setCurSpeed(newMaxSpeed);
+						}
+					}
+				}
+				// nobody can see the craft, so move it several steps at a time, just as often as that many steps take
+				int steps = 1;
+				if (Settings.UnobservedCruiseStepMultiplier > 1 && !pcraft.isObserved())
+					steps = Settings.UnobservedCruiseStepMultiplier;
+				// only straight moves are swept for obstructions, so a projectile that also climbs or dives goes one step at a time
+				if (pcraft.getType().getCruiseOnPilot() && pcraft.getType().getCruiseOnPilotVertMove() != 0)
+					steps = 1;
+				if (Math.abs(ticksElapsed) >= pcraft.getCurTickCooldown() * steps) {
+					int dx = 0;
+					int dz = 0;
+					int dy = 0;
+
+					// ascend
+					if (pcraft.getCruiseDirection() == 0x42) {
+						dy = 0 + 1 + pcraft.getType().getVertCruiseSkipBlocks();
+					}
+					// descend
+					if (pcraft.getCruiseDirection() == 0x43) {
+						dy = 0 - 1 - pcraft.getType().getVertCruiseSkipBlocks();
+						if (pcraft.getMinY() <= w.getSeaLevel())
+							dy = -1;
+					}
+					// ship faces west
+					if (pcraft.getCruiseDirection() == 0x5) {
+						dx = 0 - 1 - pcraft.getType().getCruiseSkipBlocks();
+					}
+					// ship faces east
+					if (pcraft.getCruiseDirection() == 0x4) {
+						dx = 1 + pcraft.getType().getCruiseSkipBlocks();
+					}
+					// ship faces north
+					if (pcraft.getCruiseDirection() == 0x2) {
+						dz = 1 + pcraft.getType().getCruiseSkipBlocks();
+					}
+					// ship faces south
+					if (pcraft.getCruiseDirection() == 0x3) {
+						dz = 0 - 1 - pcraft.getType().getCruiseSkipBlocks();
+					}
+					if (pcraft.getType().getCruiseOnPilot())
+						dy = pcraft.getType().getCruiseOnPilotVertMove();
+					pcraft.translate(dx * steps, dy * steps, dz * steps, steps);
+					pcraft.setLastDX(dx);
+					pcraft.setLastDZ(dz);
+					if (pcraft.getLastCruiseUpdate() != -1) {
+						pcraft.setLastCruisUpdate(System.currentTimeMillis());
+					} else {
+						pcraft.setLastCruisUpdate(System.currentTimeMillis()-30000);
+					}
+					
+					if(pcraft.getCurSpeed()<pcraft.getMaxSpeed()) {  // increase velocity of cruising craft and logarithmically approach maxspeed
+						double difference=pcraft.getMaxSpeed()-pcraft.getCurSpeed();
+						double newSpeed=pcraft.getCurSpeed();
+						if(difference/10.0 < 0.01)
+							newSpeed+=0.01;
+						else
+							newSpeed+=difference/10.0;
+						pcraft.setCurSpeed(newSpeed);
+					}
+				}
 
-						}/* else {
-
-							if (pcraft.getPilotLocked() == true && pcraft.isNotProcessing()) {
-
-								Player p = CraftManager.getInstance().getPlayerFromCraft(pcraft);
-								if (p != null)
-									if (MathUtils.playerIsWithinBoundingPolygon(pcraft.getHitBox(), pcraft.getMinX(),
-											pcraft.getMinZ(), MathUtils.bukkit2MovecraftLoc(p.getLocation()))) {
-										double movedX = p.getLocation().getX() - pcraft.getPilotLockedX();
-										double movedZ = p.getLocation().getZ() - pcraft.getPilotLockedZ();
-										int dX = 0;
-										int dZ = 0;
-										if (movedX > 0.15)
-											dX = 1;
-										else if (movedX < -0.15)
-											dX = -1;
-										if (movedZ > 0.15)
-											dZ = 1;
-										else if (movedZ < -0.15)
-											dZ = -1;
-										if (dX != 0 || dZ != 0) {
-											long timeSinceLastMoveCommand = System.currentTimeMillis()
-													- pcraft.getLastRightClick();
-											// wait before accepting new move
-											// commands to help with bouncing.
-											// Also ignore extreme movement
-											if (Math.abs(movedX) < 0.2 && Math.abs(movedZ) < 0.2
-													&& timeSinceLastMoveCommand > 300) {
-
-												pcraft.setLastRightClick(System.currentTimeMillis());
-												long ticksElapsed = (System.currentTimeMillis()
-														- pcraft.getLastCruiseUpdate()) / 50;
-
-												// if the craft should go slower
-												// underwater, make time pass
-												// more slowly there
-												if (pcraft.getType().getHalfSpeedUnderwater()
-														&& pcraft.getMinY() < w.getSeaLevel())
-													ticksElapsed = ticksElapsed >> 1;
-
-												if (Math.abs(ticksElapsed) >= pcraft.getType().getTickCooldown()) {
-													pcraft.translate(dX, 0, dZ);
-													pcraft.setLastCruisUpdate(System.currentTimeMillis());
-												}
-												pcraft.setLastDX(dX);
-												pcraft.setLastDY(0);
-												pcraft.setLastDZ(dZ);
-												pcraft.setKeepMoving(true);
-											} else {
-												Location loc = p.getLocation();
-												loc.setX(pcraft.getPilotLockedX());
-												loc.setY(pcraft.getPilotLockedY());
-												loc.setZ(pcraft.getPilotLockedZ());
-												Vector pVel = new Vector(0.0, 0.0, 0.0);
-												p.teleport(loc);
-												p.setVelocity(pVel);
-											}
-										}
+			}/* else {
+
+				if (pcraft.getPilotLocked() == true && pcraft.isNotProcessing()) {
+
+					Player p = CraftManager.getInstance().getPlayerFromCraft(pcraft);
+					if (p != null)
+						if (MathUtils.playerIsWithinBoundingPolygon(pcraft.getHitBox(), pcraft.getMinX(),
+								pcraft.getMinZ(), MathUtils.bukkit2MovecraftLoc(p.getLocation()))) {
+							double movedX = p.getLocation().getX() - pcraft.getPilotLockedX();
+							double movedZ = p.getLocation().getZ() - pcraft.getPilotLockedZ();
+							int dX = 0;
+							int dZ = 0;
+							if (movedX > 0.15)
+								dX = 1;
+							else if (movedX < -0.15)
+								dX = -1;
+							if (movedZ > 0.15)
+								dZ = 1;
+							else if (movedZ < -0.15)
+								dZ = -1;
+							if (dX != 0 || dZ != 0) {
+								long timeSinceLastMoveCommand = System.currentTimeMillis()
+										- pcraft.getLastRightClick();
+								// wait before accepting new move
+								// commands to help with bouncing.
+								// Also ignore extreme movement
+								if (Math.abs(movedX) < 0.2 && Math.abs(movedZ) < 0.2
+										&& timeSinceLastMoveCommand > 300) {
+
+									pcraft.setLastRightClick(System.currentTimeMillis());
+									long ticksElapsed = (System.currentTimeMillis()
+											- pcraft.getLastCruiseUpdate()) / 50;
+
+									// if the craft should go slower
+									// underwater, make time pass
+									// more slowly there
+									if (pcraft.getType().getHalfSpeedUnderwater()
+											&& pcraft.getMinY() < w.getSeaLevel())
+										ticksElapsed = ticksElapsed >> 1;
+
+									if (Math.abs(ticksElapsed) >= pcraft.getType().getTickCooldown()) {
+										pcraft.translate(dX, 0, dZ);
+										pcraft.setLastCruisUpdate(System.currentTimeMillis());
 									}
+									pcraft.setLastDX(dX);
+									pcraft.setLastDY(0);
+									pcraft.setLastDZ(dZ);
+									pcraft.setKeepMoving(true);
+								} else {
+									Location loc = p.getLocation();
+									loc.setX(pcraft.getPilotLockedX());
+									loc.setY(pcraft.getPilotLockedY());
+									loc.setZ(pcraft.getPilotLockedZ());
+									Vector pVel = new Vector(0.0, 0.0, 0.0);
+									p.teleport(loc);
+									p.setVelocity(pVel);
+								}
 							}
-						}*/
-					}
+						}
 				}
-			}
+			}*/
 		}
-
 	}
 
 	private boolean isRegionBlockedPVP(MovecraftLocation loc, World w) {
@@ -838,7 +930,7 @@ public class AsyncManager extends BukkitRunnable {
 								CraftManager.getInstance().removeCraft(pcraft);
 							}
 							long ticksElapsed = (System.currentTimeMillis() - pcraft.getLastCruiseUpdate()) / 50;
-							if (Math.abs(ticksElapsed) >= pcraft.getType().getSinkRateTicks()) {
+							if (Math.abs(ticksElapsed) >= pcraft.getType().getSinkRateTicks() && isAwake(pcraft)) {
 								int dx = 0;
 								int dz = 0;
 								if (pcraft.getType().getKeepMovingOnSink()) {
@@ -1557,6 +1649,9 @@ public class AsyncManager extends BukkitRunnable {
 								int cx = muc.getNewBlockLocation().getX() >> 4;
 								int cz = muc.getNewBlockLocation().getZ() >> 4;
 								if (w.isChunkLoaded(cx, cz) == false) {
+									// keep the change for later rather than loading a chunk for a craft nobody is near
+									if (pcraft.isHibernating() || !pcraft.isObserved())
+										continue;
 									w.loadChunk(cx, cz);
 								}
 								if(w.getBlockAt(muc.getNewBlockLocation().getX(), muc.getNewBlockLocation().getY(), muc.getNewBlockLocation().getZ()).getTypeId()==muc.getTypeID()) {
@@ -1614,14 +1709,17 @@ public class AsyncManager extends BukkitRunnable {
 		processAssault();
 		processAlgorithmQueue();
 		processScheduledBlockChanges();
-//		if(Settings.CompatibilityMode==false)
-//			FastBlockChanger.getInstance().run(); 
+		ChunkPrefetcher.getInstance().updatePinnedChunks();
+		// fix the light where crafts have changed blocks
+		if(Settings.CompatibilityMode==false)
+			FastBlockChanger.getInstance().run(); 
 		
-		// now cleanup craft that are bugged and have not moved in the past 60 seconds, but have no pilot
+		// now cleanup craft that are bugged and have not moved in the past 60 seconds, but have no pilot. Crafts waiting
+		// for chunks to load are kept, their chunks aren't pinned so they cost nothing until they wake up
 		for (World w : Bukkit.getWorlds()) {
 			if (w != null && CraftManager.getInstance().getCraftsInWorld(w) != null) {
 				for (Craft pcraft : CraftManager.getInstance().getCraftsInWorld(w)) {
-					if(CraftManager.getInstance().getPlayerFromCraft(pcraft)==null) {
+					if(CraftManager.getInstance().getPlayerFromCraft(pcraft)==null && !pcraft.isHibernating()) {
 						if(pcraft.getLastCruiseUpdate()<System.currentTimeMillis()-60000) {
 							CraftManager.getInstance().forceRemoveCraft(pcraft);							
 						}
@@ -1629,6 +1727,7 @@ public class AsyncManager extends BukkitRunnable {
 				}
 			}
 		}
+		submitProjectileBatches();
 	}
 
 	private void clear(Craft c) {
@@ -1638,6 +1737,7 @@ public class AsyncManager extends BukkitRunnable {
 	private void clearAll() {
 		for (Craft c : clearanceSet) {
 			c.setProcessing(false);
+			c.submitPendingMove();
 		}
 
 		clearanceSet.clear();
@@ -20,8 +20,13 @@ package net.countercraft.movecraft.async;
 import net.countercraft.movecraft.Movecraft;
 import net.countercraft.movecraft.craft.Craft;
 import net.countercraft.movecraft.localisation.I18nSupport;
+import net.countercraft.movecraft.utils.MathUtils;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 public abstract class AsyncTask extends BukkitRunnable {
@@ -46,4 +51,45 @@ public abstract class AsyncTask extends BukkitRunnable {
 	protected Craft getCraft() {
 		return craft;
 	}
+
+	/**
+	 * Returns the entities that move along with the craft: its passengers plus any other entity in the chunks under
+	 * the craft that is near it. Players only come from the passengers. Only those chunks are searched instead of
+	 * every entity in the world
+	 */
+	protected List<Entity> getEntitiesOnCraft() {
+		List<Entity> entities = new ArrayList<Entity>( craft.getPassengers() );
+		int minChunkX = ( craft.getMinX() - 3 ) >> 4;
+		int maxChunkX = ( craft.getMaxX() + 3 ) >> 4;
+		int minChunkZ = ( craft.getMinZ() - 3 ) >> 4;
+		int maxChunkZ = ( craft.getMaxZ() + 3 ) >> 4;
+		for ( int cx = minChunkX; cx <= maxChunkX; cx++ ) {
+			for ( int cz = minChunkZ; cz <= maxChunkZ; cz++ ) {
+				if ( !craft.getW().isChunkLoaded( cx, cz ) ) {
+					continue;
+				}
+				Entity[] chunkEntities = null;
+				int numTries = 0;
+				while ( ( chunkEntities == null ) && ( numTries < 100 ) ) {
+					try {
+						chunkEntities = craft.getW().getChunkAt( cx, cz ).getEntities();
+					} catch ( java.util.ConcurrentModificationException e ) {
+						numTries++;
+					}
+				}
+				if ( chunkEntities == null ) {
+					continue;
+				}
+				for ( Entity e : chunkEntities ) {
+					if ( e instanceof Player ) {
+						continue;
+					}
+					if ( MathUtils.locIsNearCraftFast( craft, MathUtils.bukkit2MovecraftLoc( e.getLocation() ) ) ) {
+						entities.add( e );
+					}
+				}
+			}
+		}
+		return entities;
+	}
 }
@@ -61,6 +61,7 @@ public class DetectionTask extends AsyncTask {
 	private Integer minY;
 	private final Stack<MovecraftLocation> blockStack = new Stack<MovecraftLocation>();
 	private final HashSet<MovecraftLocation> blockList = new HashSet<MovecraftLocation>();
+	private final ArrayList<MovecraftLocation> furnaceList = new ArrayList<MovecraftLocation>();
 	private final HashSet<MovecraftLocation> visited = new HashSet<MovecraftLocation>();
 	private final HashMap<ArrayList<Integer>, Integer> blockTypeCount = new HashMap<ArrayList<Integer>, Integer>();
 	private HashMap<ArrayList<Integer>, ArrayList<Double>> dFlyBlocks;
@@ -151,6 +152,7 @@ public class DetectionTask extends AsyncTask {
 		if (isWithinLimit(blockList.size(), minSize, maxSize)) {
 
 			data.setBlockList(finaliseBlockList(blockList));
+			data.setFurnaceList(furnaceList.toArray(new MovecraftLocation[furnaceList.size()]));
 
 			if (confirmStructureRequirements(flyBlocks, blockTypeCount)) {
 				data.setHitBox(BoundingBoxUtils.formBoundingBox(data.getBlockList(), data.getMinX(), maxX,
@@ -334,6 +336,9 @@ public class DetectionTask extends AsyncTask {
 					}
 
 					addToBlockList(workingLocation);
+					if (testID == 61 || testID == 62) {
+						furnaceList.add(workingLocation);
+					}
 					Integer blockID = testID;
 					Integer dataID = testData;
 					Integer shiftedID = (blockID << 4) + dataID + 10000;
@@ -28,6 +28,7 @@ public class DetectionTaskData {
 	private boolean waterContact;
 	private String failMessage;
 	private MovecraftLocation[] blockList;
+	private MovecraftLocation[] furnaceList;
 	private Player player;
 	private Player notificationPlayer;
 	private int[][][] hitBox;
@@ -93,6 +94,14 @@ public class DetectionTaskData {
 		this.blockList = blockList;
 	}
 
+	public MovecraftLocation[] getFurnaceList() {
+		return furnaceList;
+	}
+
+	void setFurnaceList( MovecraftLocation[] furnaceList ) {
+		this.furnaceList = furnaceList;
+	}
+
 	public Player getPlayer() {
 		return player;
 	}
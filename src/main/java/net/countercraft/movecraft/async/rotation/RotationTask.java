@@ -77,22 +77,37 @@ public class RotationTask extends AsyncTask {
 	private final Rotation rotation;
 	private final World w;
 	private final boolean isSubCraft;
+	private final int turns;
+	private final int dx, dy, dz;
+	private boolean outOfFuel;
 	private HashMap <MapUpdateCommand , Long> scheduledBlockChanges;
 
 	public RotationTask( Craft c, MovecraftLocation originPoint, MovecraftLocation[] blockList, Rotation rotation, World w ) {
-		super( c );
-		this.originPoint = originPoint;
-		this.blockList = blockList;
-		this.rotation = rotation;
-		this.w = w;
-		this.isSubCraft = false;
+		this( c, originPoint, blockList, rotation, 1, 0, 0, 0, w, false );
 	}
 
 	public RotationTask( Craft c, MovecraftLocation originPoint, MovecraftLocation[] blockList, Rotation rotation, World w, boolean isSubCraft ) {
+		this( c, originPoint, blockList, rotation, 1, 0, 0, 0, w, isSubCraft );
+	}
+
+	/**
+	 * Turns the craft by a number of quarter turns about the origin point and then moves it by the offset, checking
+	 * and applying both in a single pass and a single map update, e.g. for a 180 degree turn or a turn followed by a
+	 * step forward
+	 */
+	public RotationTask( Craft c, MovecraftLocation originPoint, MovecraftLocation[] blockList, Rotation rotation, int turns, int dx, int dy, int dz, World w ) {
+		this( c, originPoint, blockList, rotation, turns, dx, dy, dz, w, false );
+	}
+
+	private RotationTask( Craft c, MovecraftLocation originPoint, MovecraftLocation[] blockList, Rotation rotation, int turns, int dx, int dy, int dz, World w, boolean isSubCraft ) {
 		super( c );
 		this.originPoint = originPoint;
 		this.blockList = blockList;
 		this.rotation = rotation;
+		this.turns = turns;
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
 		this.w = w;
 		this.isSubCraft = isSubCraft;
 	}
@@ -185,54 +200,13 @@ public class RotationTask extends AsyncTask {
 			blockList=newHSBlockList.toArray(new MovecraftLocation[newHSBlockList.size()]);
 		}
 		
-        // check for fuel, burn some from a furnace if needed. Blocks of coal are supported, in addition to coal and charcoal
-        double fuelBurnRate=getCraft().getType().getFuelBurnRate();
-        if(fuelBurnRate!=0.0 && getCraft().getSinking()==false) {
-            if(getCraft().getBurningFuel()<fuelBurnRate) {
-                Block fuelHolder=null;
-                for (MovecraftLocation bTest : blockList) {
-                        Block b=getCraft().getW().getBlockAt(bTest.getX(), bTest.getY(), bTest.getZ());
-                        if(b.getTypeId()==61) {
-                                InventoryHolder inventoryHolder = ( InventoryHolder ) b.getState();
-                                if(inventoryHolder.getInventory().contains(263) || inventoryHolder.getInventory().contains(173)) {
-                                        fuelHolder=b;
-                                }					
-                        }
-                }
-                if(fuelHolder==null) {
-                    failed = true;
-					failMessage = String.format( I18nSupport.getInternationalisedString( "Translation - Failed Craft out of fuel" ) );
-                } else {
-                    InventoryHolder inventoryHolder = ( InventoryHolder ) fuelHolder.getState();
-                    if(inventoryHolder.getInventory().contains(263)) {
-                        ItemStack iStack=inventoryHolder.getInventory().getItem(inventoryHolder.getInventory().first(263));
-                        int amount=iStack.getAmount();
-                        if(amount==1) {
-                                inventoryHolder.getInventory().remove(iStack);
-                        } else {
-                                iStack.setAmount(amount-1);
-                        }
-                        getCraft().setBurningFuel(getCraft().getBurningFuel()+7.0);
-                    } else {
-                        ItemStack iStack=inventoryHolder.getInventory().getItem(inventoryHolder.getInventory().first(173));
-                        int amount=iStack.getAmount();
-                        if(amount==1) {
-                        		inventoryHolder.getInventory().remove(iStack);
-                        } else {
-                                iStack.setAmount(amount-1);
-                        }
-                        getCraft().setBurningFuel(getCraft().getBurningFuel()+79.0);
-
-                    }
-                }
-            } else {
-                    getCraft().setBurningFuel(getCraft().getBurningFuel()-fuelBurnRate);
-            }
+        // fuel was already burnt from the craft's furnace index on the main thread, see Craft.rotate
+        if(outOfFuel) {
+            failed = true;
+            failMessage = String.format( I18nSupport.getInternationalisedString( "Translation - Failed Craft out of fuel" ) );
         }
 
-		
 		// Rotate the block set
-		MovecraftLocation[] centeredBlockList = new MovecraftLocation[blockList.length];
 		MovecraftLocation[] originalBlockList = blockList.clone();
 		HashSet<MovecraftLocation> existingBlockSet = new HashSet<MovecraftLocation>( Arrays.asList( originalBlockList ) );
 		Set<MapUpdateCommand> mapUpdates = new HashSet<MapUpdateCommand>();
@@ -254,15 +228,10 @@ public class RotationTask extends AsyncTask {
                 }
                 int craftMinY = 0;
                 int craftMaxY = 0;  
-		// make the centered block list
-		for ( int i = 0; i < blockList.length; i++ ) {
-			centeredBlockList[i] = blockList[i].subtract( originPoint );
-
-			}
+		blockList = transformBlockList( originalBlockList );
 
 		for ( int i = 0; i < blockList.length; i++ ) {
 
-			blockList[i] = MathUtils.rotateVec( rotation, centeredBlockList[i] ).add( originPoint );
 			int typeID = w.getBlockTypeIdAt( blockList[i].getX(), blockList[i].getY(), blockList[i].getZ() );
             
             Material testMaterial = w.getBlockAt(originalBlockList[i].getX(), originalBlockList[i].getY(), originalBlockList[i].getZ()).getType();
@@ -275,6 +244,12 @@ public class RotationTask extends AsyncTask {
                     break;
                 }
             }
+            if ( dy != 0 && ( ( blockList[i].getY() > getCraft().getType().getMaxHeightLimit() && blockList[i].getY() > originalBlockList[i].getY() )
+                    || ( blockList[i].getY() < getCraft().getType().getMinHeightLimit() && blockList[i].getY() < originalBlockList[i].getY() ) ) ) {
+                failed = true;
+                failMessage = String.format( I18nSupport.getInternationalisedString( "Translation - Failed Craft hit height limit" ) );
+                break;
+            }
             Location plugLoc=new Location(w, blockList[i].getX(), blockList[i].getY(), blockList[i].getZ());
             if(craftPilot!=null) {
                 // See if they are permitted to build in the area, if WorldGuard integration is turned on
@@ -358,10 +333,8 @@ public class RotationTask extends AsyncTask {
 					byte data = w.getBlockAt( originalBlockList[i].getX(), originalBlockList[i].getY(), originalBlockList[i].getZ() ).getData();
 					int currentID = w.getBlockTypeIdAt( blockList[i].getX(), blockList[i].getY(), blockList[i].getZ() );
 					byte currentData = w.getBlockAt( blockList[i].getX(), blockList[i].getY(), blockList[i].getZ() ).getData();
-					if ( BlockUtils.blockRequiresRotation( id ) ) {
-						data = BlockUtils.rotate( data, id, rotation );
-					}
-					mapUpdates.add( new MapUpdateCommand( originalBlockList[i], currentID, currentData, blockList[i], id, data, rotation, getCraft() ) );
+					data = rotateData( data, id );
+					mapUpdates.add( new MapUpdateCommand( originalBlockList[i], currentID, currentData, blockList[i], id, data, rotation, turns, getCraft() ) );
 				} 
 			} else {
 				// allow watercraft to rotate through water
@@ -374,10 +347,8 @@ public class RotationTask extends AsyncTask {
 					byte data = w.getBlockAt( originalBlockList[i].getX(), originalBlockList[i].getY(), originalBlockList[i].getZ() ).getData();
 					int currentID = w.getBlockTypeIdAt( blockList[i].getX(), blockList[i].getY(), blockList[i].getZ() );
 					byte currentData = w.getBlockAt( blockList[i].getX(), blockList[i].getY(), blockList[i].getZ() ).getData();
-					if ( BlockUtils.blockRequiresRotation( id ) ) {
-						data = BlockUtils.rotate( data, id, rotation );
-					}
-					mapUpdates.add( new MapUpdateCommand( originalBlockList[i], currentID, currentData, blockList[i], id, data, rotation, getCraft() ) );
+					data = rotateData( data, id );
+					mapUpdates.add( new MapUpdateCommand( originalBlockList[i], currentID, currentData, blockList[i], id, data, rotation, turns, getCraft() ) );
 				} 
 			}
 
@@ -387,19 +358,8 @@ public class RotationTask extends AsyncTask {
 			//rotate entities in the craft
 			Location tOP = new Location( getCraft().getW(), originPoint.getX(), originPoint.getY(), originPoint.getZ() );
 			
-			List<Entity> eList=null;
-			int numTries=0;
-			
-			while((eList==null)&&(numTries<100)) {
-				try {
-					eList=getCraft().getW().getEntities();
-				}
-				catch(java.util.ConcurrentModificationException e)
-				{
-					numTries++;
-				}
-			}
-			Iterator<Entity> i=getCraft().getW().getEntities().iterator();
+			List<Entity> eList=getEntitiesOnCraft();
+			Iterator<Entity> i=eList.iterator();
 			while (i.hasNext()) {
 				Entity pTest=i.next();
 //				if ( MathUtils.playerIsWithinBoundingPolygon( getCraft().getHitBox(), getCraft().getMinX(), getCraft().getMinZ(), MathUtils.bukkit2MovecraftLoc( pTest.getLocation() ) ) ) {
@@ -416,22 +376,27 @@ public class RotationTask extends AsyncTask {
 							}
 						Location adjustedPLoc = playerLoc.subtract( tOP ); 
 
-						double[] rotatedCoords = MathUtils.rotateVecNoRound( rotation, adjustedPLoc.getX(), adjustedPLoc.getZ() );
+						double[] rotatedCoords = new double[]{ adjustedPLoc.getX(), adjustedPLoc.getZ() };
+						for ( int turn = 0; turn < turns; turn++ ) {
+							rotatedCoords = MathUtils.rotateVecNoRound( rotation, rotatedCoords[0], rotatedCoords[1] );
+						}
 						Location rotatedPloc = new Location( getCraft().getW(), rotatedCoords[0], playerLoc.getY(), rotatedCoords[1] );
-						Location newPLoc = rotatedPloc.add( tOP );
+						Location newPLoc = rotatedPloc.add( tOP ).add( dx, dy, dz );
 
 						newPLoc.setPitch(playerLoc.getPitch());
 						float newYaw=playerLoc.getYaw();
-						if(rotation==Rotation.CLOCKWISE) {
-							newYaw=newYaw+90.0F;
-							if(newYaw>=360.0F) {
-								newYaw=newYaw-360.0F;
+						for ( int turn = 0; turn < turns; turn++ ) {
+							if(rotation==Rotation.CLOCKWISE) {
+								newYaw=newYaw+90.0F;
+								if(newYaw>=360.0F) {
+									newYaw=newYaw-360.0F;
+								}
 							}
-						}
-						if(rotation==Rotation.ANTICLOCKWISE) {
-							newYaw=newYaw-90;
-							if(newYaw<0.0F) {
-								newYaw=newYaw+360.0F;
+							if(rotation==Rotation.ANTICLOCKWISE) {
+								newYaw=newYaw-90;
+								if(newYaw<0.0F) {
+									newYaw=newYaw+360.0F;
+								}
 							}
 						}
 						newPLoc.setYaw(newYaw);
@@ -491,9 +456,7 @@ public class RotationTask extends AsyncTask {
 	        HashMap <MapUpdateCommand , Long> newScheduledBlockChanges=new HashMap <MapUpdateCommand , Long>();
 	        HashMap <MapUpdateCommand , Long> oldScheduledBlockChanges=getCraft().getScheduledBlockChanges();
 	        for(MapUpdateCommand muc : oldScheduledBlockChanges.keySet()) {
-	        	MovecraftLocation newLoc=muc.getNewBlockLocation();
-	        	newLoc=newLoc.subtract(originPoint);
-	        	newLoc=MathUtils.rotateVec( rotation, newLoc ).add( originPoint );
+	        	MovecraftLocation newLoc=transformBlockList( new MovecraftLocation[]{ muc.getNewBlockLocation() } )[0];
 	        	Long newTime=System.currentTimeMillis()+5000;
 	        	MapUpdateCommand newMuc=new MapUpdateCommand(newLoc, muc.getTypeID(), muc.getDataID(), getCraft());
 	        	newScheduledBlockChanges.put(newMuc, newTime);
@@ -564,7 +527,7 @@ public class RotationTask extends AsyncTask {
 			}
 
 			this.hitbox = polygonalBox;
-			if(getCraft().getCruising()) {
+			for ( int turn = 0; turn < turns && getCraft().getCruising(); turn++ ) {
 				if(rotation==Rotation.ANTICLOCKWISE) {
 					// ship faces west
 					if (getCraft().getCruiseDirection() == 0x5) {
@@ -644,6 +607,7 @@ public class RotationTask extends AsyncTask {
 						List<MovecraftLocation> parentBlockList=ListUtils.subtract(Arrays.asList(craft.getBlockList()), Arrays.asList(originalBlockList));
 						parentBlockList.addAll(Arrays.asList(blockList));
 						craft.setBlockList(parentBlockList.toArray( new MovecraftLocation[1] ));
+						craft.rotateFurnaces(rotation, originPoint, existingBlockSet);
 
 						// Rerun the polygonal bounding formula for the parent craft
 						Integer parentMaxX = null;
@@ -744,11 +708,51 @@ public class RotationTask extends AsyncTask {
 	public Rotation getRotation() {
 		return rotation;
 	}
+
+	public int getTurns() {
+		return turns;
+	}
+
+	public int getDx() {
+		return dx;
+	}
+
+	public int getDy() {
+		return dy;
+	}
+
+	public int getDz() {
+		return dz;
+	}
     
 	public boolean getIsSubCraft() {
 		return isSubCraft;
 	}
 
+	public void setOutOfFuel( boolean outOfFuel ) {
+		this.outOfFuel = outOfFuel;
+	}
+
+	private MovecraftLocation[] transformBlockList( MovecraftLocation[] locations ) {
+		MovecraftLocation[] transformed = locations.clone();
+		for ( int turn = 0; turn < turns; turn++ ) {
+			transformed = MathUtils.rotateBlockList( rotation, originPoint, transformed );
+		}
+		if ( dx != 0 || dy != 0 || dz != 0 ) {
+			for ( int i = 0; i < transformed.length; i++ ) {
+				transformed[i] = transformed[i].translate( dx, dy, dz );
+			}
+		}
+		return transformed;
+	}
+
+	private byte rotateData( byte data, int id ) {
+		for ( int turn = 0; turn < turns; turn++ ) {
+			data = BlockUtils.rotateData( data, id, rotation );
+		}
+		return data;
+	}
+
     private boolean checkChests(Material mBlock, MovecraftLocation newLoc, HashSet<MovecraftLocation> existingBlockSet){
         Material testMaterial;
         MovecraftLocation aroundNewLoc;
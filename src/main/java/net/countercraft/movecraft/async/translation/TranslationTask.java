@@ -26,6 +26,7 @@ import net.countercraft.movecraft.config.Settings;
 import net.countercraft.movecraft.craft.Craft;
 import net.countercraft.movecraft.craft.CraftManager;
 import net.countercraft.movecraft.localisation.I18nSupport;
+import net.countercraft.movecraft.utils.BlockUtils;
 import net.countercraft.movecraft.utils.BoundingBoxUtils;
 import net.countercraft.movecraft.utils.EntityUpdateCommand;
 import net.countercraft.movecraft.utils.MapUpdateCommand;
@@ -125,6 +126,11 @@ public class TranslationTask extends AsyncTask {
                     waterCraft=true;
                     hoverCraft=false;
             }
+            // projectiles fly straight, they never hover
+            boolean projectile=getCraft().getType().getCruiseOnPilot();
+            if(projectile) {
+                    hoverCraft=false;
+            }
             
             if(getCraft().getDisabled() && (!getCraft().getSinking())) {
             	fail( String.format( I18nSupport.getInternationalisedString( "Craft is disabled!" ) ) );					
@@ -233,52 +239,9 @@ public class TranslationTask extends AsyncTask {
                 blocksList=newHSBlockList.toArray(new MovecraftLocation[newHSBlockList.size()]);
             }
 		
-            // check for fuel, burn some from a furnace if needed. Blocks of coal are supported, in addition to coal and charcoal
-            double fuelBurnRate=getCraft().getType().getFuelBurnRate();
-            // going down doesn't require fuel
-            if(data.getDy()==-1 && data.getDx()==0 && data.getDz()==0)
-            	fuelBurnRate=0.0;
-            
-            if(fuelBurnRate!=0.0 && getCraft().getSinking()==false) {
-                if(getCraft().getBurningFuel()<fuelBurnRate) {
-                    Block fuelHolder=null;
-                    for (MovecraftLocation bTest : blocksList) {
-                            Block b=getCraft().getW().getBlockAt(bTest.getX(), bTest.getY(), bTest.getZ());
-                            if(b.getTypeId()==61) {
-                                    InventoryHolder inventoryHolder = ( InventoryHolder ) b.getState();
-                                    if(inventoryHolder.getInventory().contains(263) || inventoryHolder.getInventory().contains(173)) {
-                                            fuelHolder=b;
-                                    }					
-                            }
-                    }
-                    if(fuelHolder==null) {
-                        fail( String.format( I18nSupport.getInternationalisedString( "Translation - Failed Craft out of fuel" ) ) );					
-                    } else {
-                        InventoryHolder inventoryHolder = ( InventoryHolder ) fuelHolder.getState();
-                        if(inventoryHolder.getInventory().contains(263)) {
-                            ItemStack iStack=inventoryHolder.getInventory().getItem(inventoryHolder.getInventory().first(263));
-                            int amount=iStack.getAmount();
-                            if(amount==1) {
-                                    inventoryHolder.getInventory().remove(iStack);
-                            } else {
-                                    iStack.setAmount(amount-1);
-                            }
-                            getCraft().setBurningFuel(getCraft().getBurningFuel()+7.0);
-                        } else {
-                            ItemStack iStack=inventoryHolder.getInventory().getItem(inventoryHolder.getInventory().first(173));
-                            int amount=iStack.getAmount();
-                            if(amount==1) {
-                                    inventoryHolder.getInventory().remove(iStack);
-                            } else {
-                                    iStack.setAmount(amount-1);
-                            }
-                            getCraft().setBurningFuel(getCraft().getBurningFuel()+79.0);
-
-                        }
-                    }
-                } else {
-                        getCraft().setBurningFuel(getCraft().getBurningFuel()-fuelBurnRate);
-                }
+            // fuel was already burnt from the craft's furnace index on the main thread, see Craft.translate
+            if(data.outOfFuel()) {
+                fail( String.format( I18nSupport.getInternationalisedString( "Translation - Failed Craft out of fuel" ) ) );
             }
             
             List<MovecraftLocation> tempBlockList=new ArrayList<MovecraftLocation>();
@@ -294,6 +257,22 @@ public class TranslationTask extends AsyncTask {
             List<MovecraftLocation> destroyedBlocks = new ArrayList<MovecraftLocation>(); 
             List<Material> harvesterBladeBlocks =  getCraft().getType().getHarvesterBladeBlocks(); 
             
+            // a craft that skips blocks must not pass through anything between here and its destination
+            if(!getCraft().getSinking()) {
+                sweepTranslation(blocksList, existingBlockSet, waterCraft);
+            }
+            
+            // a cruising craft checks the corridor ahead of it for several steps at once, and then only
+            // re-checks it once those steps are used up or something changes inside it
+            boolean corridorClear = false;
+            if(Settings.CruiseCorridorSteps > 0 && getCraft().getCruising() && !getCraft().getSinking() && !hoverCraft && harvestBlocks.isEmpty()) {
+                corridorClear = getCraft().takeCorridorStep(data.getDx(), data.getDy(), data.getDz(), blocksList.length);
+                if(!corridorClear) {
+                    corridorClear = scanCorridor(blocksList, existingBlockSet, waterCraft);
+                }
+            }
+            data.setCorridorStep(corridorClear);
+            
             int hoverOver = data.getDy();
             int craftMinY = 0;
             int craftMaxY = 0;
@@ -328,6 +307,7 @@ public class TranslationTask extends AsyncTask {
                 
                     
             
+            int unchangedBlocks = 0;
             for ( int i = 0; i < blocksList.length; i++ ) {
                 MovecraftLocation oldLoc = blocksList[i];
                 MovecraftLocation newLoc = oldLoc.translate( data.getDx(), data.getDy(), data.getDz() );
@@ -345,9 +325,12 @@ public class TranslationTask extends AsyncTask {
                 boolean bladeOK = true;
                 Material testMaterial;
                 
+                // only the leading faces of the craft can run into anything, every other block moves into a spot
+                // the craft is leaving, so the obstruction and protection checks are skipped for those
+                boolean leadingFace = !existingBlockSet.contains( newLoc );
                 
                 Location plugLoc=new Location(getCraft().getW(), newLoc.getX(), newLoc.getY(), newLoc.getZ());
-                if(craftPilot!=null) {
+                if(craftPilot!=null && leadingFace) {
                     // See if they are permitted to build in the area, if WorldGuard integration is turned on
                     if(Movecraft.getInstance().getWorldGuardPlugin()!=null && Settings.WorldGuardBlockMoveOnBuildPerm){   
                         if(Movecraft.getInstance().getWorldGuardPlugin().canBuild(craftPilot, plugLoc)==false) {
@@ -362,7 +345,7 @@ public class TranslationTask extends AsyncTask {
                 }else{
                     p = craftPilot;
                 }
-                if (p != null){
+                if (p != null && leadingFace){
                     if(Movecraft.getInstance().getWorldGuardPlugin()!=null && Movecraft.getInstance().getWGCustomFlagsPlugin()!= null && Settings.WGCustomFlagsUsePilotFlag){
                         LocalPlayer lp = Movecraft.getInstance().getWorldGuardPlugin().wrapPlayer(p);
                         WGCustomFlagsUtils WGCFU = new WGCustomFlagsUtils();
@@ -433,9 +416,13 @@ public class TranslationTask extends AsyncTask {
                     }
                 } 
             
-                if(getCraft().getSinking()) {                    
+                if(!leadingFace) {
+                    blockObstructed = false;
+                } else if(getCraft().getSinking()) {                    
                     int testID=getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getTypeId();
                     blockObstructed = !(Arrays.binarySearch(fallThroughBlocks, testID)>=0) && !existingBlockSet.contains( newLoc ); 
+                } else if(corridorClear) {
+                    blockObstructed = false;
                 } else if(!waterCraft) {
                     // New block is not air or a piston head and is not part of the existing ship
                     testMaterial = getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getType();
@@ -454,8 +441,8 @@ public class TranslationTask extends AsyncTask {
 //	            	blockObstructed=false;
 	            }
 	            
-                testMaterial = getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getType();
                 if (blockObstructed){
+                    testMaterial = getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getType();
                     if (hoverCraft || harvestBlocks.size() > 0){
                         // New block is not harvested block
                         if (harvestBlocks.contains(testMaterial) && !existingBlockSet.contains( newLoc )){
@@ -606,7 +593,14 @@ public class TranslationTask extends AsyncTask {
                     }
                     
                     if(!ignoreBlock) {
-	                    updateSet.add( new MapUpdateCommand( oldLoc, currentID, currentData, newLoc, oldID, oldData, getCraft() ) );
+                        // the destination already holds the block that would arrive there, so it isn't written unless a tile
+                        // entity has to move. The update is still sent so a scheduled tick of the block moves with it
+                        MapUpdateCommand update = new MapUpdateCommand( oldLoc, currentID, currentData, newLoc, oldID, oldData, getCraft() );
+                        if(oldID==currentID && oldData==currentData && !BlockUtils.blockHasTileEntity(oldID)) {
+                            update.setUnchanged(true);
+                            unchangedBlocks++;
+                        }
+	                    updateSet.add( update );
 	                    tempBlockList.add(newLoc);
                     }
 
@@ -708,6 +702,7 @@ public class TranslationTask extends AsyncTask {
                 i = -1;
                 tempBlockList.clear();
                 updateSet.clear(); 
+                unchangedBlocks = 0;
                 harvestedBlocks.clear();
                 data.setCollisionExplosion(false);
                 explosionSet.clear();
@@ -805,17 +800,7 @@ public class TranslationTask extends AsyncTask {
 			//prevents torpedo and rocket pilots :)
 			if (getCraft().getType().getMoveEntities() && getCraft().getSinking()==false){
                             // Move entities within the craft
-                            List<Entity> eList=null;
-                            int numTries=0;
-                            while((eList==null)&&(numTries<100)) {
-                                try {
-                                        eList=getCraft().getW().getEntities();
-                                }
-                                catch(java.util.ConcurrentModificationException e)
-                                {
-                                        numTries++;
-                                }
-                            }
+                            List<Entity> eList=getEntitiesOnCraft();
 
                             Iterator<Entity> i=eList.iterator();
                             while (i.hasNext()) {
@@ -966,6 +951,11 @@ public class TranslationTask extends AsyncTask {
             MapUpdateCommand[] updateArray=updateSet.toArray( new MapUpdateCommand[1] );
 //            MapUpdateManager.getInstance().sortUpdates(updateArray);
 			data.setUpdates(updateArray);
+			if ( updateSet.size() > 0 ) {
+				data.setUpdateReduction( ( unchangedBlocks * 100 ) / updateSet.size() );
+			} else {
+				data.setUpdateReduction( 0 );
+			}
 			data.setEntityUpdates(entityUpdateSet.toArray( new EntityUpdateCommand[1] ) );
 			
 			if ( data.getDy() != 0 ) {
@@ -1000,17 +990,139 @@ public class TranslationTask extends AsyncTask {
 		return data;
 	}
 	
+	/**
+	 * Checks the blocks a craft passes through when it moves more than one block along an axis in a single
+	 * step. Anything the craft sweeps through lies in front of the leading face of a one block move, so only
+	 * those blocks are walked out towards the destination. If something is in the way, the move is shortened
+	 * to stop right in front of it, or to a single block if the craft is already touching it, so that the
+	 * regular checks handle the collision just like they do for a craft that doesn't skip blocks. Only air, and
+	 * water for water crafts, is passed through, same as in the leading face check. A harvest block also stops the
+	 * sweep, so that it is harvested by the regular checks instead of skipped over.
+	 */
+	private void sweepTranslation( MovecraftLocation[] blocksList, HashSet<MovecraftLocation> existingBlockSet, boolean waterCraft ) {
+		int ux = Integer.signum( data.getDx() );
+		int uy = Integer.signum( data.getDy() );
+		int uz = Integer.signum( data.getDz() );
+		if ( Math.abs( ux ) + Math.abs( uy ) + Math.abs( uz ) != 1 ) {
+			return;
+		}
+		int distance = Math.abs( data.getDx() + data.getDy() + data.getDz() );
+		if ( distance < 2 ) {
+			return;
+		}
+
+		// the destination itself is left to the regular checks
+		int blockedAt = distance;
+		for ( MovecraftLocation l : blocksList ) {
+			if ( existingBlockSet.contains( l.translate( ux, uy, uz ) ) ) {
+				continue;
+			}
+			// air never obstructs anything, same as in the regular checks
+			if ( getCraft().getW().getBlockAt( l.getX(), l.getY(), l.getZ() ).getType().equals( Material.AIR ) ) {
+				continue;
+			}
+			for ( int step = 1; step < blockedAt; step++ ) {
+				MovecraftLocation swept = l.translate( ux * step, uy * step, uz * step );
+				// past here the blocks are in front of another part of the leading face
+				if ( existingBlockSet.contains( swept ) ) {
+					break;
+				}
+				Material testMaterial = getCraft().getW().getBlockAt( swept.getX(), swept.getY(), swept.getZ() ).getType();
+				if ( !testMaterial.equals( Material.AIR ) && !( waterCraft && ( testMaterial.equals( Material.WATER ) || testMaterial.equals( Material.STATIONARY_WATER ) ) ) ) {
+					blockedAt = step;
+					break;
+				}
+			}
+		}
+
+		if ( blockedAt < distance ) {
+			int newDistance = blockedAt > 1 ? blockedAt - 1 : 1;
+			data.setDx( ux * newDistance );
+			data.setDy( uy * newDistance );
+			data.setDz( uz * newDistance );
+		}
+	}
+
+	/**
+	 * Checks the blocks in front of the craft for up to CruiseCorridorSteps moves by the current offset, and
+	 * stores how far the way is clear in the craft. Only the leading face of the craft is tested, since every
+	 * other destination is a block the craft itself leaves behind. Unloaded chunks end the scan so that this
+	 * never loads chunks off the main thread.
+	 *
+	 * @return true if the current move is clear
+	 */
+	private boolean scanCorridor( MovecraftLocation[] blocksList, HashSet<MovecraftLocation> existingBlockSet, boolean waterCraft ) {
+		int dx = data.getDx();
+		int dy = data.getDy();
+		int dz = data.getDz();
+		List<MovecraftLocation> leadingFace = new ArrayList<MovecraftLocation>();
+		int[] faceBounds = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+		for ( MovecraftLocation l : blocksList ) {
+			if ( !existingBlockSet.contains( l.translate( dx, dy, dz ) ) ) {
+				leadingFace.add( l );
+				faceBounds[0] = Math.min( faceBounds[0], l.getX() );
+				faceBounds[1] = Math.min( faceBounds[1], l.getY() );
+				faceBounds[2] = Math.min( faceBounds[2], l.getZ() );
+				faceBounds[3] = Math.max( faceBounds[3], l.getX() );
+				faceBounds[4] = Math.max( faceBounds[4], l.getY() );
+				faceBounds[5] = Math.max( faceBounds[5], l.getZ() );
+			}
+		}
+
+		int clearSteps = 0;
+		for ( int step = 1; step <= Settings.CruiseCorridorSteps; step++ ) {
+			boolean clear = true;
+			for ( MovecraftLocation l : leadingFace ) {
+				int x = l.getX() + dx * step;
+				int y = l.getY() + dy * step;
+				int z = l.getZ() + dz * step;
+				if ( y < data.getMinHeight() || y > data.getMaxHeight() || !getCraft().getW().isChunkLoaded( x >> 4, z >> 4 ) ) {
+					clear = false;
+					break;
+				}
+				if ( existingBlockSet.contains( new MovecraftLocation( x, y, z ) ) ) {
+					continue;
+				}
+				Material testMaterial = getCraft().getW().getBlockAt( x, y, z ).getType();
+				if ( !testMaterial.equals( Material.AIR ) && !( waterCraft && ( testMaterial.equals( Material.WATER ) || testMaterial.equals( Material.STATIONARY_WATER ) ) ) ) {
+					clear = false;
+					break;
+				}
+			}
+			if ( !clear ) {
+				break;
+			}
+			clearSteps = step;
+		}
+
+		if ( clearSteps == 0 || leadingFace.isEmpty() ) {
+			getCraft().clearCorridor();
+			return false;
+		}
+		int[] bounds = new int[] {
+				faceBounds[0] + Math.min( dx, dx * clearSteps ), faceBounds[1] + Math.min( dy, dy * clearSteps ), faceBounds[2] + Math.min( dz, dz * clearSteps ),
+				faceBounds[3] + Math.max( dx, dx * clearSteps ), faceBounds[4] + Math.max( dy, dy * clearSteps ), faceBounds[5] + Math.max( dz, dz * clearSteps ) };
+		// the first step is used up by this move
+		getCraft().setCorridor( clearSteps - 1, dx, dy, dz, blocksList.length, bounds );
+		return true;
+	}
+
 	private boolean isFreeSpace(int x, int y, int z, MovecraftLocation[] blocksList, HashSet<MovecraftLocation> existingBlockSet, boolean waterCraft, boolean hoverCraft, List<Material> harvestBlocks, boolean canHoverOverWater,boolean checkHover){
             boolean isFree = true;
             // this checking for hovercrafts should be faster with separating horizontal layers and checking only realy necesseries,
             // or more better: remember what checked in each translation, but it's beyond my current abilities, I will try to solve it in future
         for (MovecraftLocation oldLoc : blocksList) {
             MovecraftLocation newLoc = oldLoc.translate( x, y, z);
+            // blocks moving into the craft's own spots can't be obstructed, only the leading faces are read
+            boolean leadingFace = !existingBlockSet.contains( newLoc );
             
-            Material testMaterial = getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getType();
-            if (!canHoverOverWater){
-                if ( testMaterial.equals(Material.STATIONARY_WATER) || testMaterial.equals(Material.WATER) ){
-                    fail (String.format(I18nSupport.getInternationalisedString( "Translation - Failed Craft over water" )));
+            Material testMaterial = null;
+            if (leadingFace){
+                testMaterial = getCraft().getW().getBlockAt( newLoc.getX(), newLoc.getY(), newLoc.getZ() ).getType();
+                if (!canHoverOverWater){
+                    if ( testMaterial.equals(Material.STATIONARY_WATER) || testMaterial.equals(Material.WATER) ){
+                        fail (String.format(I18nSupport.getInternationalisedString( "Translation - Failed Craft over water" )));
+                    }
                 }
             }
             
@@ -1024,7 +1136,9 @@ public class TranslationTask extends AsyncTask {
             }
             
             boolean blockObstructed;
-            if(!waterCraft) {
+            if(!leadingFace) {
+                blockObstructed = false;
+            } else if(!waterCraft) {
                 // New block is not air or a piston head and is not part of the existing ship
                 blockObstructed = (!testMaterial.equals(Material.AIR)) && !existingBlockSet.contains( newLoc );
             } else {
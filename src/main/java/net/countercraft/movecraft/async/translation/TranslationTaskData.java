@@ -42,6 +42,9 @@ public class TranslationTaskData {
 	private int minX, minZ;
 	private int maxHeight, minHeight;
 	private boolean collisionExplosion;
+	private boolean outOfFuel;
+	private int updateReduction;
+	private boolean corridorStep;
 
 	public TranslationTaskData( int dx, int dz, int dy, MovecraftLocation[] blockList, int[][][] hitbox, int minZ, int minX, int maxHeight, int minHeight ) {
 		this.dx = dx;
@@ -68,10 +71,18 @@ public class TranslationTaskData {
 		return dz;
 	}
 	
+	public void setDx(int dX) {
+		this.dx = dX;
+	}
+
 	public void setDy(int dY) {
 		this.dy = dY;
 	}
 
+	public void setDz(int dZ) {
+		this.dz = dZ;
+	}
+
 	public boolean failed() {
 		return failed;
 	}
@@ -80,6 +91,30 @@ public class TranslationTaskData {
 		this.failed = failed;
 	}
 
+	public boolean outOfFuel() {
+		return outOfFuel;
+	}
+
+	public void setOutOfFuel( boolean outOfFuel ) {
+		this.outOfFuel = outOfFuel;
+	}
+
+	public int getUpdateReduction() {
+		return updateReduction;
+	}
+
+	public void setUpdateReduction( int updateReduction ) {
+		this.updateReduction = updateReduction;
+	}
+
+	public boolean isCorridorStep() {
+		return corridorStep;
+	}
+
+	public void setCorridorStep( boolean corridorStep ) {
+		this.corridorStep = corridorStep;
+	}
+
 	public boolean collisionExplosion() {
 		return collisionExplosion;
 	}
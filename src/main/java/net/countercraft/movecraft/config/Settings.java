@@ -35,6 +35,7 @@ public class Settings {
 	public static int PilotTool = 280;
 	public static int SilhouetteViewDistance=200;
 	public static int SilhouetteBlockCount=20;
+	public static int SilhouetteParticleBudget=400;
 	public static boolean CompatibilityMode = false;
 	public static boolean DelayColorChanges = false;
 	public static double SinkRateTicks = 20.0;
@@ -52,6 +53,14 @@ public class Settings {
 	public static int FireballLifespan = 6;
 	public static int RepairTicksPerBlock = 0;
 	public static int BlockQueueChunkSize = 1000;
+	public static int MapUpdateTickBudget = 25;
+	public static int LightUpdateTickBudget = 5;
+	public static int LightUpdateDelay = 250;
+	public static int SectionResendThreshold = 64;
+	public static int CruiseCorridorSteps = 4;
+	public static int UnobservedCruiseStepMultiplier = 4;
+	public static int ChunkPrefetchSteps = 16;
+	public static int ChunkPinMargin = 1;
 	public static double RepairMoneyPerBlock = 0.0;
 	public static boolean FireballPenetration = true;
 	public static boolean AllowCrewSigns = true;
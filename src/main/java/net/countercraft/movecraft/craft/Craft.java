@@ -23,21 +23,33 @@ import net.countercraft.movecraft.async.rotation.RotationTask;
 import net.countercraft.movecraft.async.translation.TranslationTask;
 import net.countercraft.movecraft.async.translation.TranslationTaskData;
 import net.countercraft.movecraft.utils.MapUpdateCommand;
+import net.countercraft.movecraft.utils.MathUtils;
 import net.countercraft.movecraft.utils.MovecraftLocation;
 import net.countercraft.movecraft.utils.Rotation;
 
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Craft {
 	private int[][][] hitBox;
 	private final CraftType type;
 	private MovecraftLocation[] blockList;
+	private MovecraftLocation[] furnaceList = new MovecraftLocation[0];
 	private HashMap <MapUpdateCommand , Long> scheduledBlockChanges;
 	private World w;
 	private AtomicBoolean processing = new AtomicBoolean();
@@ -60,9 +72,18 @@ public class Craft {
 	private Player cannonDirector;
 	private Player AADirector;
 	private HashMap<Player, Long> movedPlayers = new HashMap<Player, Long>(); 
+	private final Set<Player> passengers = Collections.newSetFromMap(new ConcurrentHashMap<Player, Boolean>());
 	private double curSpeed;
 	private int curTickCooldown;
 	private double maxSpeed;
+	private int lastUpdateReduction;
+	private int corridorSteps;
+	private int corridorDX, corridorDY, corridorDZ;
+	private int corridorBlockCount;
+	private int[] corridorBounds;
+	private final PendingMoveQueue pendingMoves = new PendingMoveQueue();
+	private boolean hibernating;
+	private final Set<Long> hibernationChunks = new HashSet<Long>();
 	
 	public Craft( CraftType type, World world ) {
 		this.type = type;
@@ -106,6 +127,92 @@ public class Craft {
 		}
 	}
 
+	public MovecraftLocation[] getFurnaceList() {
+		return furnaceList;
+	}
+
+	public void setFurnaceList( MovecraftLocation[] furnaceList ) {
+		this.furnaceList = furnaceList;
+	}
+
+	public void translateFurnaces( int dx, int dy, int dz ) {
+		MovecraftLocation[] newFurnaceList = new MovecraftLocation[furnaceList.length];
+		for ( int i = 0; i < furnaceList.length; i++ ) {
+			newFurnaceList[i] = furnaceList[i].translate( dx, dy, dz );
+		}
+		furnaceList = newFurnaceList;
+	}
+
+	/**
+	 * Rotates the furnace index the same way the blocks of the craft were rotated
+	 *
+	 * @param rotation - direction of the rotation
+	 * @param originPoint - point the craft rotated around
+	 * @param movedBlocks - only furnaces in this set are rotated, or all of them if it is null
+	 */
+	public void rotateFurnaces( Rotation rotation, MovecraftLocation originPoint, Set<MovecraftLocation> movedBlocks ) {
+		MovecraftLocation[] newFurnaceList = new MovecraftLocation[furnaceList.length];
+		for ( int i = 0; i < furnaceList.length; i++ ) {
+			if ( movedBlocks == null || movedBlocks.contains( furnaceList[i] ) ) {
+				newFurnaceList[i] = MathUtils.rotateVec( rotation, furnaceList[i].subtract( originPoint ) ).add( originPoint );
+			} else {
+				newFurnaceList[i] = furnaceList[i];
+			}
+		}
+		furnaceList = newFurnaceList;
+	}
+
+	/**
+	 * Burns the fuel needed for one move. Runs on the main thread before the movement task is submitted, and
+	 * only opens the furnaces from the furnace index when the fuel already burning has run out
+	 *
+	 * @param fuelBurnRate - fuel used by the move
+	 * @return false if the craft needed fuel and there was none left in its furnaces
+	 */
+	private boolean burnFuel( double fuelBurnRate ) {
+		if ( fuelBurnRate == 0.0 || sinking ) {
+			return true;
+		}
+		// a move of several steps can need more than one item
+		while ( burningFuel < fuelBurnRate ) {
+			if ( !takeFuel() ) {
+				return false;
+			}
+		}
+		burningFuel -= fuelBurnRate;
+		return true;
+	}
+
+	private boolean takeFuel() {
+		for ( MovecraftLocation loc : furnaceList ) {
+			Block b = w.getBlockAt( loc.getX(), loc.getY(), loc.getZ() );
+			if ( b.getTypeId() != 61 ) {
+				continue;
+			}
+			Inventory inventory = ( ( InventoryHolder ) b.getState() ).getInventory();
+			if ( inventory.contains( 263 ) ) {
+				takeOne( inventory, 263 );
+				burningFuel += 8.0;
+				return true;
+			}
+			if ( inventory.contains( 173 ) ) {
+				takeOne( inventory, 173 );
+				burningFuel += 80.0;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void takeOne( Inventory inventory, int typeID ) {
+		ItemStack iStack = inventory.getItem( inventory.first( typeID ) );
+		if ( iStack.getAmount() == 1 ) {
+			inventory.remove( iStack );
+		} else {
+			iStack.setAmount( iStack.getAmount() - 1 );
+		}
+	}
+
 	public CraftType getType() {
 		return type;
 	}
@@ -135,6 +242,12 @@ public class Craft {
 	}
 
 	public void translate( int dx, int dy, int dz ) {
+		translate( dx, dy, dz, 1 );
+	}
+	/**
+	 * Moves the craft, burning fuel for the given number of steps, for when several steps are made at once
+	 */
+	public void translate( int dx, int dy, int dz, int fuelSteps ) {
 		// check to see if the craft is trying to move in a direction not permitted by the type
 		if(this.getType().allowHorizontalMovement()==false && this.getSinking()==false) {
 			dx=0;
@@ -153,6 +266,15 @@ public class Craft {
                     }
                 }
 		
+		// a busy craft won't accept the task, so keep the move for when it's done, its chunks are loaded then
+		if ( !isNotProcessing() ) {
+			if ( !sinking ) {
+				int stepDistance = 1 + ( dy != 0 ? type.getVertCruiseSkipBlocks() : type.getCruiseSkipBlocks() );
+				pendingMoves.addTranslation( dx, dy, dz, Math.max( PendingMoveQueue.MAX_MERGED_DISTANCE, stepDistance ) );
+			}
+			return;
+		}
+
 		// find region that will need to be loaded to translate this craft
 		int cminX=minX;
 		int cmaxX=minX;
@@ -179,15 +301,15 @@ public class Craft {
 		
 		
 		// load all chunks that will be needed to translate this craft
-		for (int posX=cminX-1;posX<=cmaxX+1;posX++) {
-			for (int posZ=cminZ-1;posZ<=cmaxZ+1;posZ++) {
-				if(this.getW().isChunkLoaded(posX, posZ) == false) {
-					this.getW().loadChunk(posX, posZ);
-				}
-			}
+		if ( !loadChunks( cminX-1, cmaxX+1, cminZ-1, cmaxZ+1 ) ) {
+			return;
 		}
-		
-		AsyncManager.getInstance().submitTask( new TranslationTask( this, new TranslationTaskData( dx, dz, dy, getBlockList(), getHitBox(), minZ, minX, type.getMaxHeightLimit(), type.getMinHeightLimit() ) ), this );
+		TranslationTaskData data = new TranslationTaskData( dx, dz, dy, getBlockList(), getHitBox(), minZ, minX, type.getMaxHeightLimit(), type.getMinHeightLimit() );
+		// going down doesn't require fuel
+		if ( !( dy == -1 && dx == 0 && dz == 0 ) ) {
+			data.setOutOfFuel( !burnFuel( type.getFuelBurnRate() * fuelSteps ) );
+		}
+		AsyncManager.getInstance().submitTask( new TranslationTask( this, data ), this );
 	}
 	
 	public void resetSigns( boolean resetCruise, boolean resetAscend, boolean resetDescend) {
@@ -215,6 +337,20 @@ public class Craft {
 	}
 
 	public void rotate( Rotation rotation, MovecraftLocation originPoint ) {
+		// a busy craft won't accept the task, so keep the turn for when it's done
+		if ( !isNotProcessing() ) {
+			if ( !sinking ) {
+				pendingMoves.addRotation( rotation, originPoint );
+			}
+			return;
+		}
+		transform( rotation, 1, originPoint, 0, 0, 0, 1 );
+	}
+	/**
+	 * Turns the craft by the given number of quarter turns about the origin point and then moves it by the offset,
+	 * as a single task, burning fuel for the given number of steps
+	 */
+	public void transform( Rotation rotation, int turns, MovecraftLocation originPoint, int dx, int dy, int dz, int fuelSteps ) {
 		// find region that will need to be loaded to rotate this craft
 		int cminX=minX;
 		int cmaxX=minX;
@@ -236,6 +372,10 @@ public class Craft {
 			cminX-=(distZ-distX)/2;
 			cmaxX+=(distZ-distX)/2;
 		}
+		cminX+=Math.min(dx, 0);
+		cmaxX+=Math.max(dx, 0);
+		cminZ+=Math.min(dz, 0);
+		cmaxZ+=Math.max(dz, 0);
 		cminX=cminX>>4;
 		cminZ=cminZ>>4;
 		cmaxX=cmaxX>>4;
@@ -243,19 +383,153 @@ public class Craft {
 		
 		
 		// load all chunks that will be needed to rotate this craft
-		for (int posX=cminX;posX<=cmaxX;posX++) {
-			for (int posZ=cminZ;posZ<=cmaxZ;posZ++) {
-				if(this.getW().isChunkLoaded(posX, posZ) == false) {
-					this.getW().loadChunk(posX, posZ);
+		if ( !loadChunks( cminX, cmaxX, cminZ, cmaxZ ) ) {
+			return;
+		}
+		
+		if ( !isNotProcessing() ) {
+			return;
+		}
+		RotationTask task = new RotationTask( this, originPoint, this.getBlockList(), rotation, turns, dx, dy, dz, this.getW() );
+		task.setOutOfFuel( !burnFuel( type.getFuelBurnRate() * fuelSteps ) );
+		AsyncManager.getInstance().submitTask( task, this );
+	}
+	
+	/**
+	 * Loads the chunks a move needs. A cruising or sinking craft that nobody can see doesn't load them, it
+	 * hibernates instead until they are loaded, so that drifting wrecks and torpedoes don't keep generating
+	 * terrain on the main thread
+	 *
+	 * @return false if the craft went into hibernation
+	 */
+	private boolean loadChunks( int cminX, int cmaxX, int cminZ, int cmaxZ ) {
+		Set<Long> unloaded = new HashSet<Long>();
+		for ( int posX = cminX; posX <= cmaxX; posX++ ) {
+			for ( int posZ = cminZ; posZ <= cmaxZ; posZ++ ) {
+				if ( !w.isChunkLoaded( posX, posZ ) ) {
+					unloaded.add( chunkKey( posX, posZ ) );
 				}
 			}
 		}
-		
-		AsyncManager.getInstance().submitTask( new RotationTask( this, originPoint, this.getBlockList(), rotation, this.getW() ), this );
+		if ( unloaded.isEmpty() ) {
+			return true;
+		}
+		if ( ( cruising || sinking ) && !isObserved() ) {
+			hibernating = true;
+			hibernationChunks.clear();
+			hibernationChunks.addAll( unloaded );
+			return false;
+		}
+		for ( long key : unloaded ) {
+			w.loadChunk( (int) ( key >> 32 ), (int) key );
+		}
+		return true;
 	}
-	
+
+	public static long chunkKey( int cx, int cz ) {
+		return ( (long) cx << 32 ) | ( cz & 0xFFFFFFFFL );
+	}
+
+	public boolean isHibernating() {
+		return hibernating;
+	}
+
+	/**
+	 * Lets a hibernating craft know that a chunk was loaded, it wakes up once every chunk it was waiting for is there
+	 */
+	public void chunkLoaded( int cx, int cz ) {
+		if ( hibernating && hibernationChunks.remove( chunkKey( cx, cz ) ) && hibernationChunks.isEmpty() ) {
+			wake();
+		}
+	}
+
+	public void wake() {
+		hibernating = false;
+		hibernationChunks.clear();
+		// the time spent hibernating doesn't count as standing still for the cleanup of abandoned crafts
+		lastCruiseUpdate = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return true if anybody is aboard the craft or close enough to see it move
+	 */
+	public boolean isObserved() {
+		if ( !passengers.isEmpty() ) {
+			return true;
+		}
+		int[][][] hb = hitBox;
+		if ( hb == null || hb.length == 0 ) {
+			return false;
+		}
+		int range = Bukkit.getServer().getViewDistance() << 4;
+		int obsMinX = minX - range;
+		int obsMaxX = minX + hb.length + range;
+		int obsMinZ = minZ - range;
+		int obsMaxZ = minZ + hb[0].length + range;
+		for ( Player p : w.getPlayers() ) {
+			Location loc = p.getLocation();
+			if ( loc.getBlockX() >= obsMinX && loc.getBlockX() <= obsMaxX && loc.getBlockZ() >= obsMinZ && loc.getBlockZ() <= obsMaxZ ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Called once a move of the craft has been applied, so that the turns still queued keep their pivot on the same
+	 * spot of the craft
+	 */
+	public void translatePendingMoves( int dx, int dy, int dz ) {
+		pendingMoves.craftTranslated( dx, dy, dz );
+	}
+
+	/**
+	 * Called once a turn of the craft has been applied, so that the turns still queued keep their pivot on the same
+	 * spot of the craft
+	 */
+	public void rotatePendingMoves( Rotation rotation, int turns, MovecraftLocation originPoint ) {
+		pendingMoves.craftRotated( rotation, turns, originPoint );
+	}
+
+	/**
+	 * Submits the next of the moves and turns that were requested while the craft was busy. Called as soon as the
+	 * craft is idle again, so clicks on move signs and the helm aren't lost while a big craft is still moving
+	 */
+	public void submitPendingMove() {
+		if ( !isNotProcessing() ) {
+			return;
+		}
+		if ( sinking ) {
+			pendingMoves.clear();
+			return;
+		}
+		PendingMoveQueue.PendingMove move = pendingMoves.poll();
+		if ( move == null ) {
+			return;
+		}
+		if ( move.getTurns() != 0 ) {
+			// the whole turn goes in one task, together with a following single step forward if there is one
+			Rotation rotation = move.getTurns() > 0 ? Rotation.CLOCKWISE : Rotation.ANTICLOCKWISE;
+			PendingMoveQueue.PendingMove next = pendingMoves.peek();
+			if ( next != null && next.getTurns() == 0 && next.getDy() == 0 && Math.abs( next.getDx() ) <= 1 && Math.abs( next.getDz() ) <= 1
+					&& type.allowHorizontalMovement() && !type.getCanHover() && type.getHarvestBlocks().isEmpty() ) {
+				pendingMoves.poll();
+				transform( rotation, Math.abs( move.getTurns() ), move.getPivot(), next.getDx(), 0, next.getDz(), move.getSteps() + next.getSteps() );
+			} else {
+				transform( rotation, Math.abs( move.getTurns() ), move.getPivot(), 0, 0, 0, move.getSteps() );
+			}
+		} else {
+			translate( move.getDx(), move.getDy(), move.getDz(), move.getSteps() );
+		}
+	}
+
 	public void rotate( Rotation rotation, MovecraftLocation originPoint, boolean isSubCraft ) {
-		AsyncManager.getInstance().submitTask( new RotationTask( this, originPoint, this.getBlockList(), rotation, this.getW(), isSubCraft ), this );
+		if ( !isNotProcessing() ) {
+			return;
+		}
+		RotationTask task = new RotationTask( this, originPoint, this.getBlockList(), rotation, this.getW(), isSubCraft );
+		task.setOutOfFuel( !burnFuel( type.getFuelBurnRate() ) );
+		AsyncManager.getInstance().submitTask( task, this );
 	}
 
 	public int getMaxX() {
@@ -408,6 +682,11 @@ public class Craft {
 		return movedPlayers;
 	}
 
+	// players aboard the craft, re-seeded after every move and kept up to date by the PlayerListener in between, so the async tasks don't have to scan the world's entities
+	public Set<Player> getPassengers() {
+		return passengers;
+	}
+
 	public void setPilotLocked( boolean pilotLocked ) {
 		this.pilotLocked = pilotLocked;
 	}
@@ -502,4 +781,59 @@ public class Craft {
 		return maxSpeed;
 	}
 	
+	public void setLastUpdateReduction(int lastUpdateReduction) {
+		this.lastUpdateReduction=lastUpdateReduction;
+	}
+	
+	public int getLastUpdateReduction() {
+		return lastUpdateReduction;
+	}
+	
+	/**
+	 * Remembers how many more moves by the given offset are known to be free of obstructions. The bounds
+	 * enclose every block that was checked, so that a change inside them can throw the cache away
+	 *
+	 * @param bounds minX, minY, minZ, maxX, maxY, maxZ of the checked blocks
+	 */
+	public synchronized void setCorridor( int steps, int dx, int dy, int dz, int blockCount, int[] bounds ) {
+		corridorSteps = steps;
+		corridorDX = dx;
+		corridorDY = dy;
+		corridorDZ = dz;
+		corridorBlockCount = blockCount;
+		corridorBounds = bounds;
+	}
+	
+	/**
+	 * Uses up one step of the corridor cache
+	 *
+	 * @return true if a move by this offset was already checked and nothing has changed in the corridor since
+	 */
+	public synchronized boolean takeCorridorStep( int dx, int dy, int dz, int blockCount ) {
+		if ( corridorSteps <= 0 || dx != corridorDX || dy != corridorDY || dz != corridorDZ || blockCount != corridorBlockCount ) {
+			corridorSteps = 0;
+			return false;
+		}
+		corridorSteps--;
+		return true;
+	}
+	
+	public synchronized void invalidateCorridor( int x, int y, int z ) {
+		if ( corridorSteps > 0 && x >= corridorBounds[0] && y >= corridorBounds[1] && z >= corridorBounds[2]
+				&& x <= corridorBounds[3] && y <= corridorBounds[4] && z <= corridorBounds[5] ) {
+			corridorSteps = 0;
+		}
+	}
+	
+	public synchronized void invalidateCorridor( int minX, int minY, int minZ, int maxX, int maxY, int maxZ ) {
+		if ( corridorSteps > 0 && maxX >= corridorBounds[0] && maxY >= corridorBounds[1] && maxZ >= corridorBounds[2]
+				&& minX <= corridorBounds[3] && minY <= corridorBounds[4] && minZ <= corridorBounds[5] ) {
+			corridorSteps = 0;
+		}
+	}
+	
+	public synchronized void clearCorridor() {
+		corridorSteps = 0;
+	}
+	
 }
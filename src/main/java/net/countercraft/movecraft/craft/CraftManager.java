@@ -21,14 +21,19 @@ import net.countercraft.movecraft.Movecraft;
 import net.countercraft.movecraft.localisation.I18nSupport;
 import net.countercraft.movecraft.utils.MapUpdateCommand;
 import net.countercraft.movecraft.utils.MapUpdateManager;
+import net.countercraft.movecraft.utils.MathUtils;
+import net.countercraft.movecraft.utils.MovecraftLocation;
 
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,6 +47,9 @@ public class CraftManager {
 	private final Map<World, Set<Craft>> craftList = new ConcurrentHashMap<World, Set<Craft>>();
 	private final HashMap<Player, Craft> craftPlayerIndex = new HashMap<Player, Craft>();
 	private final HashMap<Player, BukkitTask> releaseEvents = new HashMap<Player, BukkitTask>();
+	// the crafts that a player in each chunk could be aboard, so a moving player only has to look at those
+	private final Map<World, Map<Long, Set<Craft>>> craftChunkIndex = new HashMap<World, Map<Long, Set<Craft>>>();
+	private final Map<Craft, Set<Long>> indexedChunks = new HashMap<Craft, Set<Long>>();
 
 	public static CraftManager getInstance() {
 		return ourInstance;
@@ -99,6 +107,82 @@ public class CraftManager {
 		}
 		craftList.get( c.getW() ).add( c );
 		craftPlayerIndex.put( p, c );
+		// seed the passenger set, after this it is maintained from the craft's moves and the player events
+		craftMoved( c, c.getW().getPlayers() );
+	}
+
+	/**
+	 * Indexes the chunks the craft is in again and re-seeds its passengers. The players it had that are still near
+	 * it stay aboard, and the given players join it if they are near it now
+	 *
+	 * @param c - the craft that moved
+	 * @param carried - the players that were moved along with the craft, or that may otherwise have boarded it
+	 */
+	public void craftMoved( Craft c, Collection<? extends Player> carried ) {
+		unindexCraft( c );
+		int[][][] hb = c.getHitBox();
+		if ( hb == null || hb.length == 0 ) {
+			c.getPassengers().clear();
+			return;
+		}
+		Map<Long, Set<Craft>> worldIndex = craftChunkIndex.get( c.getW() );
+		if ( worldIndex == null ) {
+			worldIndex = new HashMap<Long, Set<Craft>>();
+			craftChunkIndex.put( c.getW(), worldIndex );
+		}
+		// the same margin as locIsNearCraftFast
+		Set<Long> keys = new HashSet<Long>();
+		for ( int cx = ( c.getMinX() - 3 ) >> 4; cx <= ( c.getMaxX() + 3 ) >> 4; cx++ ) {
+			for ( int cz = ( c.getMinZ() - 3 ) >> 4; cz <= ( c.getMaxZ() + 3 ) >> 4; cz++ ) {
+				long key = Craft.chunkKey( cx, cz );
+				Set<Craft> crafts = worldIndex.get( key );
+				if ( crafts == null ) {
+					crafts = new HashSet<Craft>();
+					worldIndex.put( key, crafts );
+				}
+				crafts.add( c );
+				keys.add( key );
+			}
+		}
+		indexedChunks.put( c, keys );
+
+		Iterator<Player> passengers = c.getPassengers().iterator();
+		while ( passengers.hasNext() ) {
+			Player player = passengers.next();
+			if ( player.getWorld() != c.getW() || !MathUtils.locIsNearCraftFast( c, MathUtils.bukkit2MovecraftLoc( player.getLocation() ) ) ) {
+				passengers.remove();
+			}
+		}
+		for ( Player player : carried ) {
+			if ( player.getWorld() == c.getW() && MathUtils.locIsNearCraftFast( c, MathUtils.bukkit2MovecraftLoc( player.getLocation() ) ) ) {
+				c.getPassengers().add( player );
+			}
+		}
+	}
+
+	private void unindexCraft( Craft c ) {
+		Set<Long> keys = indexedChunks.remove( c );
+		Map<Long, Set<Craft>> worldIndex = craftChunkIndex.get( c.getW() );
+		if ( keys == null || worldIndex == null ) {
+			return;
+		}
+		for ( Long key : keys ) {
+			Set<Craft> crafts = worldIndex.get( key );
+			if ( crafts != null ) {
+				crafts.remove( c );
+				if ( crafts.isEmpty() ) {
+					worldIndex.remove( key );
+				}
+			}
+		}
+	}
+
+	private Set<Craft> getCraftsNear( Location l ) {
+		Map<Long, Set<Craft>> worldIndex = craftChunkIndex.get( l.getWorld() );
+		if ( worldIndex == null ) {
+			return null;
+		}
+		return worldIndex.get( Craft.chunkKey( l.getBlockX() >> 4, l.getBlockZ() >> 4 ) );
 	}
 
 	public void removeCraft( Craft c ) {
@@ -107,7 +191,9 @@ public class CraftManager {
 		// if its sinking, just remove the craft without notifying or checking
 		if(c.getSinking()==true) {
 			craftList.get( c.getW() ).remove( c );
+			unindexCraft( c );
 			craftPlayerIndex.remove( getPlayerFromCraft( c ) );			
+			c.getPassengers().clear();
 		}
 		// don't just release torpedoes, make them sink so they don't clutter up the place
 		if(c.getType().getCruiseOnPilot()==true) {
@@ -128,6 +214,8 @@ public class CraftManager {
 		}
 		c.setScheduledBlockChanges(null);
 		craftList.get( c.getW() ).remove( c );
+		unindexCraft( c );
+		c.getPassengers().clear();
 		if ( getPlayerFromCraft( c ) != null ) {
 			getPlayerFromCraft( c ).sendMessage( String.format( I18nSupport.getInternationalisedString( "Release - Craft has been released message" ) ) );
 			Movecraft.getInstance().getLogger().log( Level.INFO, String.format( I18nSupport.getInternationalisedString( "Release - Player has released a craft console" ), c.getNotificationPlayer().getName(), c.getType().getCraftName(), c.getBlockList().length, c.getMinX(), c.getMinZ() ) );
@@ -139,6 +227,8 @@ public class CraftManager {
 	
 	public void forceRemoveCraft( Craft c ) {
 		craftList.get( c.getW() ).remove( c );
+		unindexCraft( c );
+		c.getPassengers().clear();
 		if(getPlayerFromCraft( c )!=null)
 			craftPlayerIndex.remove( getPlayerFromCraft( c ) );					
 	}
@@ -152,6 +242,58 @@ public class CraftManager {
 		}
 	}
 
+	/**
+	 * Re-evaluates which crafts the player is aboard after they moved to a new location. Only the crafts indexed in
+	 * the chunks they left and entered can have changed, those near the destination pick up the player and the rest drop them
+	 *
+	 * @param p - the player that moved
+	 * @param from - where the player was
+	 * @param to - where the player ended up
+	 */
+	public void updatePassenger( Player p, Location from, Location to ) {
+		MovecraftLocation loc = MathUtils.bukkit2MovecraftLoc( to );
+		Set<Craft> nearTo = getCraftsNear( to );
+		if ( nearTo != null ) {
+			for ( Craft c : nearTo ) {
+				if ( MathUtils.locIsNearCraftFast( c, loc ) ) {
+					c.getPassengers().add( p );
+				} else {
+					c.getPassengers().remove( p );
+				}
+			}
+		}
+		Set<Craft> nearFrom = getCraftsNear( from );
+		if ( nearFrom != null && nearFrom != nearTo ) {
+			for ( Craft c : nearFrom ) {
+				if ( nearTo == null || !nearTo.contains( c ) ) {
+					c.getPassengers().remove( p );
+				}
+			}
+		}
+	}
+
+	public void removePassenger( Player p ) {
+		for ( Set<Craft> crafts : craftList.values() ) {
+			for ( Craft c : crafts ) {
+				c.getPassengers().remove( p );
+			}
+		}
+	}
+
+	/**
+	 * Throws away the clear corridor of every craft in the world whose corridor contains the block, so that
+	 * the next move checks for obstructions again
+	 */
+	public void invalidateCorridors( World w, int x, int y, int z ) {
+		Set<Craft> crafts = craftList.get( w );
+		if ( crafts == null ) {
+			return;
+		}
+		for ( Craft c : crafts ) {
+			c.invalidateCorridor( x, y, z );
+		}
+	}
+
 	public Craft getCraftByPlayer( Player p ) {
 		return craftPlayerIndex.get( p );
 	}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.craft;
+
+import net.countercraft.movecraft.utils.MathUtils;
+import net.countercraft.movecraft.utils.MovecraftLocation;
+import net.countercraft.movecraft.utils.Rotation;
+
+import java.util.ArrayDeque;
+
+/**
+ * The moves and turns that were requested while a craft was busy, in the order they were requested. Moves along the
+ * same axis add up into one longer move, up to a maximum distance, and turns into one net turn
+ */
+class PendingMoveQueue {
+	static final int MAX_PENDING_MOVES = 8;
+	// the width of a chunk, longer moves are left to the next queued move
+	static final int MAX_MERGED_DISTANCE = 16;
+
+	private final ArrayDeque<PendingMove> moves = new ArrayDeque<PendingMove>();
+
+	/**
+	 * @param maxDistance - the furthest a merged move may go. Moves are only added up while their total stays within
+	 *                    it, so a burst of clicks can't turn into one arbitrarily long jump
+	 */
+	void addTranslation( int dx, int dy, int dz, int maxDistance ) {
+		PendingMove last = moves.peekLast();
+		if ( last != null && last.turns == 0 && last.getAxis() != -1 && last.getAxis() == PendingMove.axisOf( dx, dy, dz )
+				&& Math.abs( last.dx + dx ) + Math.abs( last.dy + dy ) + Math.abs( last.dz + dz ) <= maxDistance ) {
+			last.dx += dx;
+			last.dy += dy;
+			last.dz += dz;
+			last.steps++;
+			if ( last.dx == 0 && last.dy == 0 && last.dz == 0 ) {
+				moves.removeLast();
+			}
+			return;
+		}
+		if ( moves.size() < MAX_PENDING_MOVES ) {
+			PendingMove move = new PendingMove();
+			move.dx = dx;
+			move.dy = dy;
+			move.dz = dz;
+			moves.addLast( move );
+		}
+	}
+
+	/**
+	 * @param pivot - the point to turn about, where the craft is now. It is moved along with the craft until the turn
+	 *              is submitted
+	 */
+	void addRotation( Rotation rotation, MovecraftLocation pivot ) {
+		PendingMove last = moves.peekLast();
+		int turn = rotation == Rotation.CLOCKWISE ? 1 : -1;
+		// turns add up too, keeping the pivot of the first one
+		if ( last != null && last.turns != 0 ) {
+			last.turns = ( last.turns + turn + 4 ) % 4;
+			if ( last.turns == 3 ) {
+				last.turns = -1;
+			}
+			last.steps++;
+			if ( last.turns == 0 ) {
+				moves.removeLast();
+			}
+			return;
+		}
+		if ( moves.size() < MAX_PENDING_MOVES ) {
+			PendingMove move = new PendingMove();
+			move.turns = turn;
+			move.pivot = pivot;
+			moves.addLast( move );
+		}
+	}
+
+	/**
+	 * Keeps the pivots of the queued turns on the same spot of the craft after it has moved
+	 */
+	void craftTranslated( int dx, int dy, int dz ) {
+		if ( dx == 0 && dy == 0 && dz == 0 ) {
+			return;
+		}
+		MovecraftLocation offset = new MovecraftLocation( dx, dy, dz );
+		for ( PendingMove move : moves ) {
+			if ( move.pivot != null ) {
+				move.pivot = move.pivot.add( offset );
+			}
+		}
+	}
+
+	/**
+	 * Keeps the pivots of the queued turns on the same spot of the craft after it has turned about the origin point
+	 */
+	void craftRotated( Rotation rotation, int turns, MovecraftLocation originPoint ) {
+		for ( PendingMove move : moves ) {
+			if ( move.pivot != null ) {
+				for ( int turn = 0; turn < turns; turn++ ) {
+					move.pivot = MathUtils.rotateVec( rotation, move.pivot.subtract( originPoint ) ).add( originPoint );
+				}
+			}
+		}
+	}
+
+	PendingMove peek() {
+		return moves.peekFirst();
+	}
+
+	PendingMove poll() {
+		return moves.pollFirst();
+	}
+
+	void clear() {
+		moves.clear();
+	}
+
+	/**
+	 * A move or a number of quarter turns that was requested while the craft was busy
+	 */
+	static class PendingMove {
+		private int dx, dy, dz;
+		private int turns;
+		private MovecraftLocation pivot;
+		private int steps = 1; // the number of requests that were added up into this one, each of them burns fuel
+
+		int getDx() {
+			return dx;
+		}
+
+		int getDy() {
+			return dy;
+		}
+
+		int getDz() {
+			return dz;
+		}
+
+		/**
+		 * @return the net number of quarter turns, positive for clockwise
+		 */
+		int getTurns() {
+			return turns;
+		}
+
+		MovecraftLocation getPivot() {
+			return pivot;
+		}
+
+		int getSteps() {
+			return steps;
+		}
+
+		private int getAxis() {
+			return axisOf( dx, dy, dz );
+		}
+
+		/**
+		 * @return 0, 1 or 2 for a move along x, y or z only, -1 for anything else
+		 */
+		private static int axisOf( int dx, int dy, int dz ) {
+			if ( dy == 0 && dz == 0 && dx != 0 ) {
+				return 0;
+			}
+			if ( dx == 0 && dz == 0 && dy != 0 ) {
+				return 1;
+			}
+			if ( dx == 0 && dy == 0 && dz != 0 ) {
+				return 2;
+			}
+			return -1;
+		}
+	}
+}
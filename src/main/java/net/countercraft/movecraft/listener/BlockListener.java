@@ -574,4 +574,69 @@ public class BlockListener implements Listener {
 			}            
         }
     }
+
+	// the blocks a map update takes or writes stay as they are while it is staged and written over several ticks,
+	// otherwise a broken block would still be copied to the craft's new position, or physics would act on a block
+	// about to move. The blocks around them aren't held up
+	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+	public void onPendingBlockPlace( BlockPlaceEvent e ) {
+		if ( isInPendingBatch( e.getBlock() ) ) {
+			e.setCancelled( true );
+		}
+	}
+
+	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+	public void onPendingBlockBreak( BlockBreakEvent e ) {
+		if ( isInPendingBatch( e.getBlock() ) ) {
+			e.setCancelled( true );
+		}
+	}
+
+	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+	public void onPendingPhysics( BlockPhysicsEvent e ) {
+		if ( isInPendingBatch( e.getBlock() ) ) {
+			e.setCancelled( true );
+		}
+	}
+
+	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+	public void onPendingBlockFromTo( BlockFromToEvent e ) {
+		if ( isInPendingBatch( e.getToBlock() ) ) {
+			e.setCancelled( true );
+		}
+	}
+
+	@EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+	public void onPendingExplode( EntityExplodeEvent e ) {
+		Iterator<Block> blocks = e.blockList().iterator();
+		while ( blocks.hasNext() ) {
+			if ( isInPendingBatch( blocks.next() ) ) {
+				blocks.remove();
+			}
+		}
+	}
+
+	private boolean isInPendingBatch( Block b ) {
+		return MapUpdateManager.getInstance().isInPendingBatch( b.getWorld(), b.getX(), b.getY(), b.getZ() );
+	}
+
+	// blocks placed, broken or blown up in front of a cruising craft invalidate its clear corridor
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onCorridorBlockPlace( BlockPlaceEvent e ) {
+		Block b = e.getBlock();
+		CraftManager.getInstance().invalidateCorridors( b.getWorld(), b.getX(), b.getY(), b.getZ() );
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onCorridorBlockBreak( BlockBreakEvent e ) {
+		Block b = e.getBlock();
+		CraftManager.getInstance().invalidateCorridors( b.getWorld(), b.getX(), b.getY(), b.getZ() );
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onCorridorExplode( EntityExplodeEvent e ) {
+		for ( Block b : e.blockList() ) {
+			CraftManager.getInstance().invalidateCorridors( b.getWorld(), b.getX(), b.getY(), b.getZ() );
+		}
+	}
 }
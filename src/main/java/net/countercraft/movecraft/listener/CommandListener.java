@@ -34,6 +34,8 @@ import net.countercraft.movecraft.craft.Craft;
 import net.countercraft.movecraft.craft.CraftManager;
 import net.countercraft.movecraft.craft.CraftType;
 import net.countercraft.movecraft.localisation.I18nSupport;
+import net.countercraft.movecraft.utils.ChunkPrefetcher;
+import net.countercraft.movecraft.utils.MapUpdateManager;
 import net.countercraft.movecraft.utils.MathUtils;
 import net.countercraft.movecraft.utils.MovecraftLocation;
 import net.countercraft.movecraft.utils.Rotation;
@@ -370,6 +372,8 @@ public class CommandListener implements CommandExecutor {
 			if(noCraftsFound) {
 				player.sendMessage("No crafts found");
 			}
+			player.sendMessage("Pinned chunks: "+ChunkPrefetcher.getInstance().getPinnedChunkCount());
+			player.sendMessage("Block packets sent: "+MapUpdateManager.getInstance().getBlockPacketsSent()+" (about "+(MapUpdateManager.getInstance().getBlockPacketBytesSent()>>10)+" KB)");
 			return true;
 		}
 		
@@ -28,13 +28,16 @@ import net.countercraft.movecraft.localisation.I18nSupport;
 import net.countercraft.movecraft.utils.MathUtils;
 import net.countercraft.movecraft.utils.MovecraftLocation;
 
+import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
@@ -163,6 +166,7 @@ public class PlayerListener implements Listener {
 
 	@EventHandler
 	public void onPLayerLogout( PlayerQuitEvent e ) {
+		CraftManager.getInstance().removePassenger( e.getPlayer() );
 		Craft c = CraftManager.getInstance().getCraftByPlayer( e.getPlayer() );
 
 		if ( c != null ) {
@@ -185,11 +189,32 @@ public class PlayerListener implements Listener {
 		}
 	}
 
+	@EventHandler
+	public void onPlayerDied( PlayerDeathEvent e ) {
+		CraftManager.getInstance().removePassenger( e.getEntity() );
+	}
+
+	@EventHandler
+	public void onPlayerTeleport( PlayerTeleportEvent e ) {
+		if ( e.isCancelled() || e.getTo() == null ) {
+			return;
+		}
+		CraftManager.getInstance().updatePassenger( e.getPlayer(), e.getFrom(), e.getTo() );
+	}
+
 	@EventHandler
 	public void onPlayerMove( PlayerMoveEvent event ) {
+		Location from = event.getFrom();
+		Location to = event.getTo();
+		// most move packets are just the player looking around, only crossing into another block can change what craft they are on
+		if ( from.getWorld() == to.getWorld() && from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY() && from.getBlockZ() == to.getBlockZ() ) {
+			return;
+		}
+		CraftManager.getInstance().updatePassenger( event.getPlayer(), from, to );
+
 		final Craft c = CraftManager.getInstance().getCraftByPlayer( event.getPlayer() );
 		if ( c != null ) {
-			if ( c.isNotProcessing() && (!MathUtils.playerIsWithinBoundingPolygon( c.getHitBox(), c.getMinX(), c.getMinZ(), MathUtils.bukkit2MovecraftLoc( event.getPlayer().getLocation() ) )) ) {
+			if ( c.isNotProcessing() && (!MathUtils.playerIsWithinBoundingPolygon( c.getHitBox(), c.getMinX(), c.getMinZ(), MathUtils.bukkit2MovecraftLoc( to ) )) ) {
 
 				if ( !CraftManager.getInstance().getReleaseEvents().containsKey( event.getPlayer() ) && c.getType().getMoveEntities()) {
 					boolean releaseBlocked=false;
@@ -0,0 +1,60 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.listener;
+
+import net.countercraft.movecraft.craft.Craft;
+import net.countercraft.movecraft.craft.CraftManager;
+import net.countercraft.movecraft.utils.ChunkPrefetcher;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+public class WorldListener implements Listener {
+
+	// wake up crafts that were hibernating until this chunk was loaded
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkLoad( ChunkLoadEvent e ) {
+		Craft[] crafts = CraftManager.getInstance().getCraftsInWorld( e.getWorld() );
+		if ( crafts == null ) {
+			return;
+		}
+		Chunk chunk = e.getChunk();
+		for ( Craft c : crafts ) {
+			c.chunkLoaded( chunk.getX(), chunk.getZ() );
+		}
+	}
+
+	// keep the chunks under crafts and ahead of cruising crafts loaded
+	@EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+	public void onChunkUnload( ChunkUnloadEvent e ) {
+		Chunk chunk = e.getChunk();
+		if ( ChunkPrefetcher.getInstance().isPinned( e.getWorld(), chunk.getX(), chunk.getZ() ) ) {
+			e.setCancelled( true );
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnload( WorldUnloadEvent e ) {
+		ChunkPrefetcher.getInstance().worldUnloaded( e.getWorld() );
+	}
+}
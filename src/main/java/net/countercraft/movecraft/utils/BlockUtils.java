@@ -22,21 +22,61 @@ import java.util.Arrays;
 public class BlockUtils {
 	private static final int[] dataBlocks = new int[]{2,3,5,6,8,9,10,11,17,18,23,24,25,26,27,28,29,31,33,34,35,43,44,46,50,51,52,53,55,59,60,61,62,63,64,65,66,67,68,69,70,71,72,75,76,77,78,81,83,84,86,91,92,93,94,96,98,99,100,104,105,106,107,108,109,114,115,116,117,118,120,125,126,127,128,130,131,132,134,135,136,137,138,139,140,141,142,143,144,145,146,147,148,149,150,151,154,155,156,157,158,159,170,171};
 
+	private static final int[] tileEntityBlocks = new int[]{ 23, 25, 36, 52, 54, 61, 62, 63, 68, 84, 116, 117, 119, 130, 137, 138, 140, 144, 146, 149, 150, 151, 154, 158, 176, 177, 178, 209, 210, 211, 255 };
+
 	private static final int[] rotationBlocks = new int[]{ 17, 50, 54, 75, 76, 26, 29, 33, 34, 53, 67, 108, 109, 114, 128, 134, 135, 136, 156, 63, 64, 71, 66, 27, 28, 65, 68, 61, 23, 69, 77, 143, 93, 94, 96, 107, 120, 131, 144, 145, 62, 99, 100, 106, 127, 130, 145, 149, 150, 154, 157, 158, 170, 86, 91, 163, 164, 203 };
 	
+	// rotated data value for every legacy block id, indexed by [rotation][id][data]
+	private static final byte[][][] rotatedData = new byte[Rotation.values().length][256][16];
+
 	static {
 		Arrays.sort(dataBlocks);
 		Arrays.sort(rotationBlocks);
+		Arrays.sort(tileEntityBlocks);
+
+		for ( Rotation rotation : Rotation.values() ) {
+			for ( int id = 0; id < 256; id++ ) {
+				for ( int data = 0; data < 16; data++ ) {
+					if ( blockRequiresRotation( id ) ) {
+						rotatedData[rotation.ordinal()][id][data] = rotate( ( byte ) data, id, rotation );
+					} else {
+						rotatedData[rotation.ordinal()][id][data] = ( byte ) data;
+					}
+				}
+			}
+		}
 	}
 
 	public static boolean blockHasNoData( int id ) {
 		return Arrays.binarySearch(dataBlocks, id) == -1;
 	}
 
+	public static boolean blockHasTileEntity( int id ) {
+		return Arrays.binarySearch(tileEntityBlocks, id) >= 0;
+	}
+
 	public static boolean blockRequiresRotation( int id ) {
 		return Arrays.binarySearch(rotationBlocks, id) != -1;
 	}
 
+	/**
+	 * Table driven equivalent of checking blockRequiresRotation and then calling rotate
+	 *
+	 * @param data - data value of the block
+	 * @param typeID - id of the block
+	 * @param rotation - direction the block is rotated in
+	 * @return the data value of the rotated block
+	 */
+	public static byte rotateData( byte data, int typeID, Rotation rotation ) {
+		if ( typeID >= 0 && typeID < 256 && data >= 0 && data < 16 ) {
+			return rotatedData[rotation.ordinal()][typeID][data];
+		}
+		if ( blockRequiresRotation( typeID ) ) {
+			return rotate( data, typeID, rotation );
+		}
+		return data;
+	}
+
 	public static boolean arrayContainsOverlap( Object[] array1, Object[] array2 ) {
 		for ( Object o : array1 ) {
 
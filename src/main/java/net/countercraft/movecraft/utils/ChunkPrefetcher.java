@@ -0,0 +1,190 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.utils;
+
+import net.countercraft.movecraft.config.Settings;
+import net.countercraft.movecraft.craft.Craft;
+import net.countercraft.movecraft.craft.CraftManager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.v1_10_R1.CraftWorld;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * Keeps the chunks under every tracked craft loaded, and loads the chunks ahead of cruising crafts before they get
+ * there using the server's asynchronous chunk loading, so that Craft.translate rarely has to stall the main thread
+ * loading a chunk itself
+ */
+public class ChunkPrefetcher {
+	private static final ChunkPrefetcher instance = new ChunkPrefetcher();
+	private static final int MAX_REQUESTS_PER_TICK = 16;
+	// a request that hasn't been answered after this many ticks is given up on, so the chunk can be requested again
+	private static final int REQUEST_TIMEOUT_TICKS = 40;
+	private final HashMap<World, HashSet<Long>> pinnedChunks = new HashMap<World, HashSet<Long>>();
+	private final HashMap<World, HashMap<Long, Long>> requestedChunks = new HashMap<World, HashMap<Long, Long>>(); // chunk key to the tick it was requested
+	private long tick = 0;
+
+	public static ChunkPrefetcher getInstance() {
+		return instance;
+	}
+
+	private ChunkPrefetcher() {
+	}
+
+	/**
+	 * Pins the chunks under every craft that CraftManager tracks, plus ChunkPinMargin chunks around them, and the
+	 * chunks the cruising crafts will pass through in the next few steps, requesting the ones that aren't loaded
+	 * yet. Chunks of released crafts and chunks the crafts have left behind are unpinned again
+	 */
+	public void updatePinnedChunks() {
+		tick++;
+		for ( HashMap<Long, Long> requested : requestedChunks.values() ) {
+			Iterator<Long> requestTicks = requested.values().iterator();
+			while ( requestTicks.hasNext() ) {
+				if ( tick - requestTicks.next() > REQUEST_TIMEOUT_TICKS ) {
+					requestTicks.remove();
+				}
+			}
+		}
+		int requests = 0;
+		for ( World w : Bukkit.getWorlds() ) {
+			HashSet<Long> pinned = new HashSet<Long>();
+			Craft[] crafts = CraftManager.getInstance().getCraftsInWorld( w );
+			if ( crafts != null ) {
+				for ( Craft c : crafts ) {
+					int[][][] hb = c.getHitBox();
+					if ( hb == null || hb.length == 0 ) {
+						continue;
+					}
+					// nobody is waiting for a hibernating craft with no pilot, its chunks may unload like any others
+					if ( c.isHibernating() && CraftManager.getInstance().getPlayerFromCraft( c ) == null ) {
+						continue;
+					}
+					if ( Settings.ChunkPinMargin >= 0 ) {
+						int minCX = ( c.getMinX() >> 4 ) - Settings.ChunkPinMargin;
+						int maxCX = ( ( c.getMinX() + hb.length - 1 ) >> 4 ) + Settings.ChunkPinMargin;
+						int minCZ = ( c.getMinZ() >> 4 ) - Settings.ChunkPinMargin;
+						int maxCZ = ( ( c.getMinZ() + hb[0].length - 1 ) >> 4 ) + Settings.ChunkPinMargin;
+						for ( int cx = minCX; cx <= maxCX; cx++ ) {
+							for ( int cz = minCZ; cz <= maxCZ; cz++ ) {
+								pinned.add( Craft.chunkKey( cx, cz ) );
+							}
+						}
+					}
+
+					// crafts nobody can see hibernate rather than load chunks, see Craft.loadChunks
+					if ( Settings.ChunkPrefetchSteps <= 0 || !c.getCruising() || c.getSinking() || c.isHibernating() || !c.isObserved() ) {
+						continue;
+					}
+					int[] step = getCruiseStep( c );
+					if ( step == null ) {
+						continue;
+					}
+					int aheadX = step[0] * Settings.ChunkPrefetchSteps;
+					int aheadZ = step[1] * Settings.ChunkPrefetchSteps;
+					int minX = c.getMinX() + Math.min( 0, aheadX );
+					int maxX = c.getMinX() + hb.length + Math.max( 0, aheadX );
+					int minZ = c.getMinZ() + Math.min( 0, aheadZ );
+					int maxZ = c.getMinZ() + hb[0].length + Math.max( 0, aheadZ );
+					// Craft.translate loads one extra chunk around the craft, so do the same
+					for ( int cx = ( minX >> 4 ) - 1; cx <= ( maxX >> 4 ) + 1; cx++ ) {
+						for ( int cz = ( minZ >> 4 ) - 1; cz <= ( maxZ >> 4 ) + 1; cz++ ) {
+							long key = Craft.chunkKey( cx, cz );
+							pinned.add( key );
+							if ( requests < MAX_REQUESTS_PER_TICK && !w.isChunkLoaded( cx, cz ) && !getRequestedChunks( w ).containsKey( key ) ) {
+								getRequestedChunks( w ).put( key, tick );
+								requests++;
+								requestChunk( w, cx, cz, key );
+							}
+						}
+					}
+				}
+			}
+			pinnedChunks.put( w, pinned );
+		}
+	}
+
+	/**
+	 * @return the number of chunks that are kept loaded for crafts in all worlds
+	 */
+	public int getPinnedChunkCount() {
+		int count = 0;
+		for ( HashSet<Long> pinned : pinnedChunks.values() ) {
+			count += pinned.size();
+		}
+		return count;
+	}
+
+	public boolean isPinned( World w, int cx, int cz ) {
+		HashSet<Long> pinned = pinnedChunks.get( w );
+		return pinned != null && pinned.contains( Craft.chunkKey( cx, cz ) );
+	}
+
+	private void requestChunk( final World w, int cx, int cz, final long key ) {
+		// chunks that were never generated can't be loaded in the background, those are left to the move itself
+		( (CraftWorld) w ).getHandle().getChunkProviderServer().getChunkAt( cx, cz, new Runnable() {
+			@Override
+			public void run() {
+				HashMap<Long, Long> requested = requestedChunks.get( w );
+				if ( requested != null ) {
+					requested.remove( key );
+				}
+			}
+		}, false );
+	}
+
+	private HashMap<Long, Long> getRequestedChunks( World w ) {
+		HashMap<Long, Long> requested = requestedChunks.get( w );
+		if ( requested == null ) {
+			requested = new HashMap<Long, Long>();
+			requestedChunks.put( w, requested );
+		}
+		return requested;
+	}
+
+	/**
+	 * Forgets the pinned and requested chunks of a world that was unloaded
+	 */
+	public void worldUnloaded( World w ) {
+		pinnedChunks.remove( w );
+		requestedChunks.remove( w );
+	}
+
+	/**
+	 * @return the horizontal offset of one cruise step of the craft, or null if it cruises vertically
+	 */
+	private static int[] getCruiseStep( Craft c ) {
+		int distance = 1 + c.getType().getCruiseSkipBlocks();
+		switch ( c.getCruiseDirection() ) {
+			case 0x2:
+				return new int[]{ 0, distance };
+			case 0x3:
+				return new int[]{ 0, -distance };
+			case 0x4:
+				return new int[]{ distance, 0 };
+			case 0x5:
+				return new int[]{ -distance, 0 };
+			default:
+				return null;
+		}
+	}
+}
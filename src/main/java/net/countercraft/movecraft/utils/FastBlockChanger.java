@@ -19,12 +19,14 @@ package net.countercraft.movecraft.utils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import net.countercraft.movecraft.Movecraft;
+import net.countercraft.movecraft.config.Settings;
 import net.minecraft.server.v1_10_R1.BlockPosition;
 import net.minecraft.server.v1_10_R1.Chunk;
 import net.minecraft.server.v1_10_R1.EntityPlayer;
@@ -67,6 +69,7 @@ import net.minecraft.server.v1_10_R1.World;
 public class FastBlockChanger extends BukkitRunnable
 {
    public ArrayList<ChunkUpdater> chunks = new ArrayList<ChunkUpdater>(64);
+   private final HashMap<World, HashMap<Long, ChunkUpdater>> chunkIndex = new HashMap<World, HashMap<Long, ChunkUpdater>>(); // the same updaters, to find them without going through the list
    private boolean enabled;
    
 	private FastBlockChanger() {
@@ -111,9 +114,13 @@ public class FastBlockChanger extends BukkitRunnable
    public ChunkUpdater getChunk(net.minecraft.server.v1_10_R1.World cw, int cx, int cz, boolean updateIfUnchanged)
    {
      this.enabled=true;// wake up the task if needed
-     for(ChunkUpdater c : chunks)
-       if(c.x==cx && c.z==cz && c.w==cw)
+     HashMap<Long, ChunkUpdater> worldIndex = chunkIndex.get(cw);
+     if(worldIndex != null)
+     {
+       ChunkUpdater c = worldIndex.get(chunkKey(cx, cz));
+       if(c != null)
          return c;
+     }
      
      if(!cw.areChunksLoaded(new BlockPosition(cx<<4, 0, cz<<4),1)) // do this after check, if this CU exists, it must be safe.. right?
        return new ChunkUpdater(cw,cx,cz,null,updateIfUnchanged); // prevents horrible chunk-loading stack overflows
@@ -125,6 +132,34 @@ public class FastBlockChanger extends BukkitRunnable
        return new ChunkUpdater(cw,cx,cz,null,updateIfUnchanged);
    }
    
+   private static long chunkKey(int cx, int cz)
+   {
+     return ((long)cx << 32) | (cz & 0xFFFFFFFFL);
+   }
+   
+   // add an updater to the list, unless another one for the same chunk is already there
+   private void queue(ChunkUpdater cu)
+   {
+     HashMap<Long, ChunkUpdater> worldIndex = chunkIndex.get(cu.w);
+     if(worldIndex == null)
+     {
+       worldIndex = new HashMap<Long, ChunkUpdater>();
+       chunkIndex.put(cu.w, worldIndex);
+     }
+     if(worldIndex.containsKey(chunkKey(cu.x, cu.z)))
+       return;
+     worldIndex.put(chunkKey(cu.x, cu.z), cu);
+     chunks.add(cu);
+   }
+   
+   private void dequeue(int i)
+   {
+     ChunkUpdater cu = chunks.remove(i);
+     HashMap<Long, ChunkUpdater> worldIndex = chunkIndex.get(cu.w);
+     if(worldIndex != null && worldIndex.get(chunkKey(cu.x, cu.z)) == cu)
+       worldIndex.remove(chunkKey(cu.x, cu.z));
+   }
+   
    @Override
    public void run()
    {
@@ -137,21 +172,26 @@ public class FastBlockChanger extends BukkitRunnable
      
      long end = System.currentTimeMillis();
      
-     long done = end-5000; // 5 seconds without any block changes to relight a chunk
+     long done = end-Settings.LightUpdateDelay; // time without any block changes to relight a chunk
      
      long doneForSend = end-100; // one tenth of a second without any block changes to send chunk to player
      
-     end+=50; // time limit for this loop
-     
-     // make a setting for this
-     if(i>15)
-       i=15; // do no more than 15 chunks per cycle to prevent stuff going potato clientside
+     end+=Settings.LightUpdateTickBudget; // time limit for this loop
      
      ChunkUpdater cu;
      //Chunk ch;
      while(System.currentTimeMillis() < end && --i>-1) // iterate through the list backwards to delete entries without issues
      {
        cu=chunks.get(i);
+       if(cu.chnk == null)
+       {
+         cu.chnk = cu.w.getChunkIfLoaded(cu.x, cu.z);
+         if(cu.chnk == null) // unloaded before it could be relit, it will be lit again when it loads
+         {
+           dequeue(i);
+           continue;
+         }
+       }
        if((cu.last_modified < doneForSend) && (System.currentTimeMillis()-cu.last_sent) > 100) { // send chunk to players if no activity for 1/10 second, and you have not sent in the past 1/10 second
     	   if( cu.nChangedSinceSend>0 ) {
 //    		   sendToPlayers(cu); this has issues, changed to old non-native method
@@ -169,17 +209,21 @@ public class FastBlockChanger extends BukkitRunnable
            if(cu.chnk != null)
            {
              
-             cu.recalcLighting();// determine what blocks need relighting, recalculate it
+             // determine what blocks need relighting, recalculate it. A chunk that isn't done by the end of the
+             // budget stays queued and carries on in the next tick
+             if(cu.recalcLighting(end))
+             {
 //        	   cu.relightEntireChunk();
              //ch = cu.ch;
              //sendToPlayers(cu);
              
-             cu.isUpdated=true;
-             chunks.remove(i);// remove the chunk updater. it is not destroyed and will be reset and added again if modified further (if a reference is held elsewhere)
+               cu.isUpdated=true;
+               dequeue(i);// remove the chunk updater. it is not destroyed and will be reset and added again if modified further (if a reference is held elsewhere)
+             }
            }
          }
          else if(!cu.updateIfUnchanged && cu.nChanged == 0)
-           chunks.remove(i);
+           dequeue(i);
        }
      }
    }
@@ -253,6 +297,7 @@ public class FastBlockChanger extends BukkitRunnable
        private int nChangedSinceSend; // total changed blocks in this chunk since the last time it was sent to players
        private boolean isUpdated=false;
        private boolean isSent=false;
+       private boolean finalized=false; // the marks were already extended down to the blocks below them
        public boolean isFBCPacket=false; // block the chunk load packet?
         // x  z  y
        public long[][][] bits = new long[16][16][4]; // an array of long bitfields, each representing 64 blocks along Y-axis
@@ -269,7 +314,7 @@ public class FastBlockChanger extends BukkitRunnable
          this.z=z;
          this.last_modified=System.currentTimeMillis()+30000; // let unmodified chunks idle for 30 seconds before either deleting updater or resending chunk.
          this.last_sent=System.currentTimeMillis(); // presumably the client already has a copy of the chunk from before you modified it, so imagine it has barely been sent
-         chunks.add(this);
+         queue(this);
        }
        
        public void setBlock(BlockPosition b, IBlockData i) // example:  setBlock( new BlockPosition(x,y,z), Blocks.AIR.getBlockData() )
@@ -306,7 +351,7 @@ public class FastBlockChanger extends BukkitRunnable
            enabled=true; // wake up the enclosing task if needed
            isUpdated=false;
            bits = new long[16][16][4];
-           chunks.add(this); // re-add to the list if it was already updated and removed
+           queue(this); // re-add to the list if it was already updated and removed
            last_modified=System.currentTimeMillis()+30000;// 30 second idle
          }
          else
@@ -321,6 +366,7 @@ public class FastBlockChanger extends BukkitRunnable
          ++nChangedSinceSend;
          
          sections|=1<<(b.getY()>>4); // y-axis chunk sections modified
+         finalized=false;
          
          long nb = ( (long)1 << (b.getY()%64) );
          ////(a % b + b) % b fixes issues with java modulus giving negative numbers for negative values of a
@@ -328,6 +374,27 @@ public class FastBlockChanger extends BukkitRunnable
          //RpgLogger.info("set bit "+Long.toBinaryString(cb)+" at "+((b.getX()%16 + 16)%16)+","+((b.getZ()%16+16)%16)+","+(b.getY()/64)+" to "+Long.toBinaryString(nb)+" ("+Long.toBinaryString(cb|nb)+")");
        }
        
+       // mark a block that was changed by other means, so the light around it is fixed along with the rest of the chunk.
+       // Only the marked blocks, and the blocks below them that are open to the sky, are relit
+       public void markForRelight(int bx, int by, int bz)
+       {
+         if(by > 255 || by < 0)
+           return;
+         if(isUpdated) // this updater was used already and needs to be reset
+         {
+           sections=0;
+           enabled=true;
+           isUpdated=false;
+           bits = new long[16][16][4];
+           queue(this);
+         }
+         last_modified=System.currentTimeMillis();
+         ++nChanged;
+         sections|=1<<(by>>4);
+         finalized=false;
+         bits[bx&15][bz&15][by>>6] |= 1L << (by&63);
+       }
+       
        private void relight(BlockPosition bp)
        {
          w.c(EnumSkyBlock.SKY, bp);
@@ -366,16 +433,14 @@ public class FastBlockChanger extends BukkitRunnable
                {
                  if(trnsp)// air below updated block
                  {
+                   newbits[bx][bz][by] |= ( 1L << l ); // set the relighting bit for the block
                    if(w.getType(new BlockPosition(px+bx,l+by64,pz+bz)).getMaterial().isSolid())
-                   {
-                     newbits[bx][bz][by] |= ( (long)1 << by64 ); // set the relighting bit for the block
                      trnsp=false;
-                   }
                  }
-                 if((bb & (1L<<l)) > 0)
+                 if((bb & (1L<<l)) != 0)
                  {
                    trnsp=true;
-                   newbits[bx][bz][by] |= ( (long)1 << by64 ); // set the relighting bit for the block
+                   newbits[bx][bz][by] |= ( 1L << l ); // set the relighting bit for the block
                  }
                }
              }
@@ -383,14 +448,20 @@ public class FastBlockChanger extends BukkitRunnable
          // add newbits to bits
          for(bx=0; bx<16; ++bx)
            for(bz=0; bz<16; ++bz)
-             for(trnsp=false,by=3; by>-1; --by)
-               bb = bits[bx][bz][by] | newbits[bx][bz][by]; // OR all the things
+             for(by=3; by>-1; --by)
+               bits[bx][bz][by] |= newbits[bx][bz][by]; // OR all the things
        }
        
-       public void recalcLighting()
+       // relight the marked blocks until they are all done, or until the deadline has passed. Each bit is cleared once
+       // its block is relit, so the next call picks up where this one stopped. Returns true when nothing is left
+       public boolean recalcLighting(long deadline)
        {
          // fix lighting for all the new blocks and transparent blocks around them
-         finalizeRelightBlocks();
+         if(!finalized)
+         {
+           finalizeRelightBlocks();
+           finalized=true;
+         }
          
          int bx,bz,by,by64,px=x<<4,pz=z<<4;
          long bb;
@@ -404,29 +475,33 @@ public class FastBlockChanger extends BukkitRunnable
            for(bz=0; bz<16; ++bz)
              for(by=3; by>-1; --by)
              {
+               bb=bits[bx][bz][by];
+               if(bb == 0)
+                 continue;
+               if(System.currentTimeMillis() > deadline)
+                 return false;
                l=64;
                by64=by*64;
-               bb=bits[bx][bz][by];
+               bits[bx][bz][by]=0; // the whole word is relit before the clock is checked again
                while(--l>-1)
                {
-                 if((bb & (1L<<l)) > 0)
+                 if((bb & (1L<<l)) != 0)
                  {
                    bp = new BlockPosition(px+bx,l+by64,pz+bz);
                    relight(bp);
                    gl=w.getLightLevel(bp);
                    
                    int tx,tz;
-                   for(tx=-sLow;tx<sHigh;++tx)
+                   for(tx=sLow;tx<sHigh;++tx)
                      for(tz=sLow;tz<sHigh;++tz)
                      {
                        rlt=false;
-                      if(tx!=0 && tz!=0)// not the block being calculated already
+                      if(!(tx==0 && tz==0))// not the block being calculated already
                       {
-                         if( !( tx+bx<0 || tx+bx>15 || tz+bz<0 || tz+bz>15) ) // not outside the chunk
-                           if((bits[tx+bx][tz+bz][by]&(1L<<l)) == 0) // not being relit already
-                             rlt=true;
-                           else
-                             rlt=true;
+                         if( tx+bx<0 || tx+bx>15 || tz+bz<0 || tz+bz>15 ) // outside the chunk
+                           rlt=true;
+                         else if((bits[tx+bx][tz+bz][by]&(1L<<l)) == 0) // not being relit already
+                           rlt=true;
                        }
                       if(rlt)//relight the block
                       {
@@ -443,6 +518,7 @@ public class FastBlockChanger extends BukkitRunnable
                }
              }
          isUpdated=true;// removed from the list and inactive
+         return true;
        }
      }
 }
\ No newline at end of file
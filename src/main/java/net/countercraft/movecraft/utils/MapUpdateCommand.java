@@ -33,6 +33,8 @@ public class MapUpdateCommand {
 	private final Rotation rotation;
 	private Craft craft;
 	private int smoke;
+	private int turns = 1;
+	private boolean unchanged = false;
 
 	public MapUpdateCommand( MovecraftLocation blockLocation, Integer currentTypeID, Byte currentDataID, MovecraftLocation newBlockLocation, int typeID, byte dataID, Rotation rotation, Craft craft ) {
 		this.blockLocation = blockLocation;
@@ -47,6 +49,11 @@ public class MapUpdateCommand {
 		this.currentDataID = currentDataID;
 	}
 
+	public MapUpdateCommand( MovecraftLocation blockLocation, Integer currentTypeID, Byte currentDataID, MovecraftLocation newBlockLocation, int typeID, byte dataID, Rotation rotation, int turns, Craft craft ) {
+		this( blockLocation, currentTypeID, currentDataID, newBlockLocation, typeID, dataID, rotation, craft );
+		this.turns = turns;
+	}
+
 	public MapUpdateCommand( MovecraftLocation blockLocation, Integer currentTypeID, Byte currentDataID, MovecraftLocation newBlockLocation, int typeID, byte dataID, Craft craft ) {
 		this.blockLocation = blockLocation;
 		this.newBlockLocation = newBlockLocation;
@@ -136,8 +143,27 @@ public class MapUpdateCommand {
 		return rotation;
 	}
 
+	/**
+	 * @return how many times the rotation is applied to the block
+	 */
+	public int getTurns() {
+		return turns;
+	}
+
 	public Craft getCraft() {
 		return craft;
 	}
+
+	/**
+	 * @return true if the block moves onto a position that already holds the same block, so it isn't written, but
+	 * its scheduled tick still moves with it
+	 */
+	public boolean isUnchanged() {
+		return unchanged;
+	}
+
+	public void setUnchanged( boolean unchanged ) {
+		this.unchanged = unchanged;
+	}
 }
 
@@ -20,6 +20,7 @@ package net.countercraft.movecraft.utils;
 import com.earth2me.essentials.User;
 
 import net.countercraft.movecraft.Movecraft;
+import net.countercraft.movecraft.async.AsyncManager;
 import net.countercraft.movecraft.config.Settings;
 import net.countercraft.movecraft.craft.Craft;
 import net.countercraft.movecraft.craft.CraftManager;
@@ -34,15 +35,23 @@ import net.countercraft.movecraft.utils.datastructures.TransferData;
 import net.minecraft.server.v1_10_R1.BlockPosition;
 import net.minecraft.server.v1_10_R1.ChatComponentText;
 import net.minecraft.server.v1_10_R1.ChunkCoordIntPair;
+import net.minecraft.server.v1_10_R1.EntityPlayer;
 import net.minecraft.server.v1_10_R1.EnumSkyBlock;
 import net.minecraft.server.v1_10_R1.IBlockData;
 import net.minecraft.server.v1_10_R1.NBTTagCompound;
 import net.minecraft.server.v1_10_R1.NextTickListEntry;
+import net.minecraft.server.v1_10_R1.Packet;
 import net.minecraft.server.v1_10_R1.PacketPlayOutBlockChange;
+import net.minecraft.server.v1_10_R1.PacketPlayOutMapChunk;
+import net.minecraft.server.v1_10_R1.PacketPlayOutMultiBlockChange;
 import net.minecraft.server.v1_10_R1.PacketPlayOutWorldParticles;
+import net.minecraft.server.v1_10_R1.PlayerChunk;
+import net.minecraft.server.v1_10_R1.PlayerChunkMap;
+import net.minecraft.server.v1_10_R1.PlayerConnection;
 import net.minecraft.server.v1_10_R1.StructureBoundingBox;
 import net.minecraft.server.v1_10_R1.TileEntity;
 import net.minecraft.server.v1_10_R1.TileEntitySign;
+import net.minecraft.server.v1_10_R1.WorldServer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -56,7 +65,6 @@ import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.block.CommandBlock;
 import org.bukkit.block.Dispenser;
-import org.bukkit.craftbukkit.v1_10_R1.CraftChunk;
 import org.bukkit.craftbukkit.v1_10_R1.CraftWorld;
 import org.bukkit.craftbukkit.v1_10_R1.block.CraftBlock;
 import org.bukkit.craftbukkit.v1_10_R1.block.CraftBlockState;
@@ -83,6 +91,8 @@ import com.sk89q.worldguard.protection.flags.DefaultFlag;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 
 import net.minecraft.server.v1_10_R1.EntityTNTPrimed;
@@ -92,10 +102,20 @@ import net.minecraft.server.v1_10_R1.EnumParticle;
 import org.bukkit.event.entity.ExplosionPrimeEvent;
 
 public class MapUpdateManager extends BukkitRunnable {
-	private final HashMap<World, ArrayList<MapUpdateCommand>> updates = new HashMap<World, ArrayList<MapUpdateCommand>>();
-	private final HashMap<World, ArrayList<EntityUpdateCommand>> entityUpdates = new HashMap<World, ArrayList<EntityUpdateCommand>>();
-    private final HashMap<World, ArrayList<ItemDropUpdateCommand>> itemDropUpdates = new HashMap<World, ArrayList<ItemDropUpdateCommand>>();
+	// updates handed in from any thread, waiting for the next tick to merge them
+	private final ConcurrentHashMap<World, ConcurrentLinkedQueue<WorldUpdateSubmission>> submissions = new ConcurrentHashMap<World, ConcurrentLinkedQueue<WorldUpdateSubmission>>();
     public HashMap<Craft, Integer> blockUpdatesPerCraft = new HashMap<Craft, Integer>();;
+	private final HashMap<World, List<WorldUpdateBatch>> batchesInProgress = new HashMap<World, List<WorldUpdateBatch>>();
+	// submissions that touch the blocks of a batch in progress, in the order they came in
+	private final HashMap<World, List<WorldUpdateSubmission>> waitingSubmissions = new HashMap<World, List<WorldUpdateSubmission>>();
+	// rough size on the wire of the packets used to send changed blocks, for the counters below
+	private static final int MULTI_BLOCK_CHANGE_BYTES = 12;
+	private static final int MULTI_BLOCK_CHANGE_BYTES_PER_BLOCK = 4;
+	private static final int MAP_CHUNK_BYTES_PER_SECTION = 10768;
+	private long blockPacketsSent = 0;
+	private long blockPacketBytesSent = 0;
+	private int silhouettePacketsSent = 0; // this tick
+	private int silhouetteRound = 0; // moves the share of the silhouette budget around from call to call
 		
 	private MapUpdateManager() {
 	}
@@ -115,6 +135,48 @@ public class MapUpdateManager extends BukkitRunnable {
 	private static class MapUpdateManagerHolder {
 		private static final MapUpdateManager INSTANCE = new MapUpdateManager();
 	}
+
+	/**
+	 * The updates handed in by one call to addWorldUpdate
+	 */
+	static class WorldUpdateSubmission {
+		final MapUpdateCommand[] mapUpdates;
+		final EntityUpdateCommand[] entityUpdates;
+		final ItemDropUpdateCommand[] itemDropUpdates;
+
+		WorldUpdateSubmission(MapUpdateCommand[] mapUpdates, EntityUpdateCommand[] entityUpdates, ItemDropUpdateCommand[] itemDropUpdates) {
+			this.mapUpdates=mapUpdates;
+			this.entityUpdates=entityUpdates;
+			this.itemDropUpdates=itemDropUpdates;
+		}
+	}
+
+	/**
+	 * The updates of a world while the blocks they write are worked out and written, kept from one tick to the next when
+	 * they don't fit in the time a tick can spend on them. Nothing is written into the world until the whole batch is
+	 * staged, and nothing written is shown to players, nor are entities, tile entities and ticks moved, until the whole
+	 * batch is written
+	 */
+	private static class WorldUpdateBatch {
+		List<MapUpdateCommand> updatesInWorld;
+		List<ItemDropUpdateCommand> itemDropUpdatesInWorld;
+		ArrayList<IBlockData> IBDMap;
+		ArrayList<TileEntity> tileMap;
+		ArrayList<NextTickListEntry> nextTickMap;
+		Integer[] applyOrder;
+		int nextOrderIndex=0;
+		IBlockData[] stagedBlocks; // the block each update writes, null where it writes nothing
+		boolean staged=false;
+		int nextWriteIndex=0;
+		final BitSet delayedUpdates=new BitSet(); // color changes left to the crafts' scheduled block changes
+		final HashSet<MovecraftLocation> positions=new HashSet<MovecraftLocation>(); // where blocks are taken from and written to
+		final List<MovecraftLocation> changedBlocks=new ArrayList<MovecraftLocation>();
+		final List<BlockPosition> staleTiles=new ArrayList<BlockPosition>();
+		final List<MovecraftLocation> movedSigns=new ArrayList<MovecraftLocation>();
+		final List<EntityUpdateCommand> entityMoves=new ArrayList<EntityUpdateCommand>(); // done once all the blocks are in place
+		HashMap<Long, List<MapUpdateCommand>> updatesBySection; // built the first time a player is moved
+		long startTime;
+	}
 	
 	private void addBlockUpdateTracking(Craft craft, int qty) {
 		if(craft==null)
@@ -142,503 +204,1147 @@ public class MapUpdateManager extends BukkitRunnable {
 	final int[] tileEntityBlocksToPreserve={ 23, 25, 54, 61, 62, 63, 68, 137, 146, 149, 150, 154, 158, 210, 211};	
 	
 	public void run() {
-		if ( updates.isEmpty() ) return;
-
-		long startTime=System.currentTimeMillis();
-
-		for ( World w : updates.keySet() ) {
-			if ( w != null ) {
-				int silhouetteBlocksSent=0;
-				List<MapUpdateCommand> updatesInWorld = updates.get( w );
-				List<EntityUpdateCommand> entityUpdatesInWorld = entityUpdates.get( w );
-                List<ItemDropUpdateCommand> itemDropUpdatesInWorld = itemDropUpdates.get( w );
-				Map<MovecraftLocation, List<EntityUpdateCommand>> entityMap = new HashMap<MovecraftLocation, List<EntityUpdateCommand>>();
-                Map<MovecraftLocation, List<ItemDropUpdateCommand>> itemMap = new HashMap<MovecraftLocation, List<ItemDropUpdateCommand>>();
-                ArrayList<net.minecraft.server.v1_10_R1.Chunk> chunksToRelight = new ArrayList<net.minecraft.server.v1_10_R1.Chunk>();
-				net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
-
-				// Make sure all chunks are loaded, and mark them for relighting later
-				for ( MapUpdateCommand c : updatesInWorld ) {
-					
-					if(c!=null) {
-						if(c.getNewBlockLocation()!=null) {
-							if(Settings.CompatibilityMode==false) {
-								Chunk chunk=w.getBlockAt(c.getNewBlockLocation().getX(), c.getNewBlockLocation().getY(), c.getNewBlockLocation().getZ()).getChunk();
-								net.minecraft.server.v1_10_R1.Chunk nativeChunk=( ( CraftChunk ) chunk ).getHandle();
-								if(!chunksToRelight.contains(nativeChunk))
-									chunksToRelight.add(nativeChunk);
-							}
-							if(!w.isChunkLoaded(c.getNewBlockLocation().getX()>>4, c.getNewBlockLocation().getZ()>>4)) {
-								w.loadChunk(c.getNewBlockLocation().getX()>>4, c.getNewBlockLocation().getZ()>>4);
-							}
-						}
-						if(c.getOldBlockLocation()!=null) {
-							if(Settings.CompatibilityMode==false) {
-								Chunk chunk=w.getBlockAt(c.getOldBlockLocation().getX(), c.getOldBlockLocation().getY(), c.getOldBlockLocation().getZ()).getChunk();
-								net.minecraft.server.v1_10_R1.Chunk nativeChunk=( ( CraftChunk ) chunk ).getHandle();
-								if(!chunksToRelight.contains(nativeChunk))
-									chunksToRelight.add(nativeChunk);
-							}
-							if(!w.isChunkLoaded(c.getOldBlockLocation().getX()>>4, c.getOldBlockLocation().getZ()>>4)) {
-								w.loadChunk(c.getOldBlockLocation().getX()>>4, c.getOldBlockLocation().getZ()>>4);
-							}
-						}
+		silhouettePacketsSent=0;
+		if ( submissions.isEmpty() && batchesInProgress.isEmpty() ) return;
+
+		long deadline=Long.MAX_VALUE;
+		if(Settings.MapUpdateTickBudget>0) {
+			deadline=System.currentTimeMillis()+Settings.MapUpdateTickBudget;
+		}
+
+		// start on the queued updates of every world in a new batch, next to the batches of earlier ticks that are still
+		// in progress. Updates that touch a block of one of those wait until it is done, and so do the updates that
+		// touch a block of a waiting one, so that the updates of a block are always written in the order they came in
+		for ( Map.Entry<World, ConcurrentLinkedQueue<WorldUpdateSubmission>> entry : submissions.entrySet() ) {
+			World w=entry.getKey();
+			List<WorldUpdateSubmission> waiting=waitingSubmissions.remove( w );
+			if ( waiting==null && entry.getValue().isEmpty() )
+				continue;
+			List<WorldUpdateSubmission> queued=new ArrayList<WorldUpdateSubmission>();
+			if ( waiting!=null )
+				queued.addAll( waiting );
+			WorldUpdateSubmission submission;
+			while ( ( submission=entry.getValue().poll() ) != null ) {
+				queued.add( submission );
+			}
+
+			HashSet<MovecraftLocation> busy=new HashSet<MovecraftLocation>();
+			List<WorldUpdateBatch> batches=batchesInProgress.get( w );
+			if ( batches!=null ) {
+				for ( WorldUpdateBatch batch : batches ) {
+					busy.addAll( batch.positions );
+				}
+			}
+			List<WorldUpdateSubmission> worldSubmissions=new ArrayList<WorldUpdateSubmission>();
+			waiting=new ArrayList<WorldUpdateSubmission>();
+			for ( WorldUpdateSubmission next : queued ) {
+				if ( touchesPositions( busy, next ) ) {
+					waiting.add( next );
+					addPositions( busy, next );
+				} else {
+					worldSubmissions.add( next );
+				}
+			}
+			if ( !waiting.isEmpty() )
+				waitingSubmissions.put( w, waiting );
+			if ( worldSubmissions.isEmpty() )
+				continue;
+			if ( batches==null ) {
+				batches=new ArrayList<WorldUpdateBatch>();
+				batchesInProgress.put( w, batches );
+			}
+			batches.add( startBatch( w, worldSubmissions ) );
+		}
+
+		// the oldest batches go first
+		for ( World w : new ArrayList<World>( batchesInProgress.keySet() ) ) {
+			List<WorldUpdateBatch> batches=batchesInProgress.get( w );
+			for ( WorldUpdateBatch batch : new ArrayList<WorldUpdateBatch>( batches ) ) {
+				if ( !batch.staged ) {
+					if ( !stageBatch( w, batch, deadline ) )
+						continue;
+					batch.staged=true;
+				}
+				if ( writeBatch( w, batch, deadline ) ) {
+					batches.remove( batch );
+					if ( batches.isEmpty() )
+						batchesInProgress.remove( w );
+					finishBatch( w, batch );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets everything ready to write the queued updates of a world: loads their chunks and keeps a copy of the blocks,
+	 * tile entities and scheduled ticks they move, before any of them is overwritten
+	 */
+	private WorldUpdateBatch startBatch( World w, List<WorldUpdateSubmission> worldSubmissions ) {
+		List<MapUpdateCommand> updatesInWorld = mergeUpdates( w, worldSubmissions );
+        List<ItemDropUpdateCommand> itemDropUpdatesInWorld = new ArrayList<ItemDropUpdateCommand>();
+		for ( WorldUpdateSubmission submission : worldSubmissions ) {
+			if ( submission.itemDropUpdates != null )
+				itemDropUpdatesInWorld.addAll( Arrays.asList( submission.itemDropUpdates ) );
+		}
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+
+		// Make sure all chunks are loaded
+		for ( MapUpdateCommand c : updatesInWorld ) {
+			
+			if(c!=null) {
+				if(c.getNewBlockLocation()!=null) {
+					if(!w.isChunkLoaded(c.getNewBlockLocation().getX()>>4, c.getNewBlockLocation().getZ()>>4)) {
+						w.loadChunk(c.getNewBlockLocation().getX()>>4, c.getNewBlockLocation().getZ()>>4);
 					}
 				}
-                                            
-				// figure out block locations of entities, so you can move them with their blocks
-				if(entityUpdatesInWorld!=null) {
-					for( EntityUpdateCommand i : entityUpdatesInWorld) {
-						if(i!=null) {
-							MovecraftLocation entityLoc=new MovecraftLocation(i.getNewLocation().getBlockX(), i.getNewLocation().getBlockY()-1, i.getNewLocation().getBlockZ());
-							if(!entityMap.containsKey(entityLoc)) {
-								List<EntityUpdateCommand> entUpdateList=new ArrayList<EntityUpdateCommand>();
-								entUpdateList.add(i);
-								entityMap.put(entityLoc, entUpdateList);
-							} else {
-								List<EntityUpdateCommand> entUpdateList=entityMap.get(entityLoc);
-								entUpdateList.add(i);
-							}
-						}
+				if(c.getOldBlockLocation()!=null) {
+					if(!w.isChunkLoaded(c.getOldBlockLocation().getX()>>4, c.getOldBlockLocation().getZ()>>4)) {
+						w.loadChunk(c.getOldBlockLocation().getX()>>4, c.getOldBlockLocation().getZ()>>4);
 					}
 				}
-				
-				// get any future redstone updates, IBData, and tile data so they can later be moved 
+			}
+		}
+
+		// get any future redstone updates, IBData, and tile data so they can later be moved 
 //				HashMap<MovecraftLocation,NextTickListEntry> nextTickMap=new HashMap<MovecraftLocation,NextTickListEntry>();
 //				HashMap<MovecraftLocation,IBlockData> IBDMap=new HashMap<MovecraftLocation,IBlockData>();
 //				HashMap<MovecraftLocation,TileEntity> tileMap=new HashMap<MovecraftLocation,TileEntity>();
-				ArrayList<IBlockData> IBDMap=new ArrayList<IBlockData>();
-				ArrayList<TileEntity> tileMap=new ArrayList<TileEntity>();
-				ArrayList<NextTickListEntry> nextTickMap=new ArrayList<NextTickListEntry>();
-				
-				for (int mapUpdateIndex=0;mapUpdateIndex<updatesInWorld.size();mapUpdateIndex++) { // TODO: make this go in chunks instead of block by block, same with the block placement system
-					MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
-					if(i!=null) {
-						if(i.getTypeID()>=0 && i.getWorldEditBaseBlock()==null && i.getOldBlockLocation()!=null) {
-							Block srcBlock=w.getBlockAt(i.getOldBlockLocation().getX(), i.getOldBlockLocation().getY(), i.getOldBlockLocation().getZ());
-							net.minecraft.server.v1_10_R1.Chunk nativeSrcChunk=( ( CraftChunk ) srcBlock.getChunk() ).getHandle();
-							StructureBoundingBox srcBoundingBox=new StructureBoundingBox(srcBlock.getX(),srcBlock.getY(),srcBlock.getZ(),srcBlock.getX()+1,srcBlock.getY()+1,srcBlock.getZ()+1);;
-							List<NextTickListEntry> entries=nativeWorld.a(srcBoundingBox, true);
-							if(entries!=null) {
-								NextTickListEntry entry=entries.get(0);//new NextTickListEntry(entries.get(0).a,entries.get(0).);
-								nextTickMap.add(entry);
-							}
-							
-							BlockPosition srcBlockPos=new BlockPosition(srcBlock.getX(), srcBlock.getY(), srcBlock.getZ());
-							IBlockData IBData=nativeSrcChunk.getBlockData(srcBlockPos);
-							IBDMap.add(IBData);
-
-							if(Arrays.binarySearch(tileEntityBlocksToPreserve, srcBlock.getTypeId())>=0) { 
-								TileEntity tileEntity=nativeSrcChunk.getTileEntities().get(srcBlockPos);
-								if(tileEntity instanceof TileEntitySign) {
-									processSign(tileEntity, i.getCraft());
-								}
-								tileMap.add(tileEntity);
-							}
+		ArrayList<IBlockData> IBDMap=new ArrayList<IBlockData>(Collections.<IBlockData>nCopies(updatesInWorld.size(), null));
+		ArrayList<TileEntity> tileMap=new ArrayList<TileEntity>(Collections.<TileEntity>nCopies(updatesInWorld.size(), null));
+		ArrayList<NextTickListEntry> nextTickMap=new ArrayList<NextTickListEntry>(Collections.<NextTickListEntry>nCopies(updatesInWorld.size(), null));
+		List<NextTickListEntry> otherTicks=new ArrayList<NextTickListEntry>();
+		HashMap<MovecraftLocation, NextTickListEntry> pendingTicks=captureScheduledTicks(nativeWorld, updatesInWorld, otherTicks);
+		
+		// the source blocks are read in chunk section order straight from their sections, so each chunk is only
+		// looked up once
+		net.minecraft.server.v1_10_R1.Chunk nativeSrcChunk=null;
+		for (int mapUpdateIndex : orderBySection(updatesInWorld, true)) {
+			MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
+			if(i==null || i.getTypeID()<0 || i.getWorldEditBaseBlock()!=null || i.getOldBlockLocation()==null)
+				continue;
+			MovecraftLocation src=i.getOldBlockLocation();
+			nextTickMap.set(mapUpdateIndex, pendingTicks.remove(src));
+			// the block stays as it is, only its scheduled tick has to move
+			if(i.isUnchanged())
+				continue;
+			
+			if(nativeSrcChunk==null || nativeSrcChunk.locX!=src.getX()>>4 || nativeSrcChunk.locZ!=src.getZ()>>4) {
+				nativeSrcChunk=nativeWorld.getChunkAt(src.getX()>>4, src.getZ()>>4);
+			}
+			IBlockData IBData=net.minecraft.server.v1_10_R1.Blocks.AIR.getBlockData();
+			if(src.getY()>=0 && src.getY()<256) {
+				net.minecraft.server.v1_10_R1.ChunkSection srcSection=nativeSrcChunk.getSections()[src.getY()>>4];
+				if(srcSection!=null) {
+					IBData=srcSection.getType(src.getX()&15, src.getY()&15, src.getZ()&15);
+				}
+			}
+			IBDMap.set(mapUpdateIndex, IBData);
+
+			if(Arrays.binarySearch(tileEntityBlocksToPreserve, CraftMagicNumbers.getId(IBData.getBlock()))>=0) { 
+				TileEntity tileEntity=nativeSrcChunk.getTileEntities().get(new BlockPosition(src.getX(), src.getY(), src.getZ()));
+				if(tileEntity instanceof TileEntitySign) {
+					processSign(tileEntity, i.getCraft());
+				}
+				tileMap.set(mapUpdateIndex, tileEntity);
+			}
+		}
+		// ticks of blocks that aren't moving go back where they were
+		otherTicks.addAll(pendingTicks.values());
+		final long currentTime = nativeWorld.worldData.getTime();
+		for (NextTickListEntry entry : otherTicks) {
+			nativeWorld.b(entry.a, entry.a(), (int)(entry.b - currentTime), entry.c);
+		}
+		
+		// the crafts of batches still in progress keep counting
+		for ( MapUpdateCommand c : updatesInWorld ) {
+			if ( c!=null && c.getCraft()!=null )
+				blockUpdatesPerCraft.remove( c.getCraft() );
+		}
+
+		WorldUpdateBatch batch=new WorldUpdateBatch();
+		batch.updatesInWorld=updatesInWorld;
+		batch.itemDropUpdatesInWorld=itemDropUpdatesInWorld;
+		batch.entityMoves.addAll(collectEntityMoves(worldSubmissions));
+		batch.IBDMap=IBDMap;
+		batch.tileMap=tileMap;
+		batch.nextTickMap=nextTickMap;
+		batch.applyOrder=orderBySection(updatesInWorld, false);
+		batch.stagedBlocks=new IBlockData[updatesInWorld.size()];
+		for ( WorldUpdateSubmission submission : worldSubmissions ) {
+			addPositions( batch.positions, submission );
+		}
+		batch.startTime=System.currentTimeMillis();
+		return batch;
+	}
+
+	/**
+	 * Works out the blocks the updates of a batch write, until they are all done or until the deadline has passed.
+	 * Nothing is written into the world yet, the blocks are kept in the batch for writeBatch
+	 *
+	 * @return true if the batch is ready to be written, false if it has to carry on in the next tick
+	 */
+	private boolean stageBatch( World w, WorldUpdateBatch batch, long deadline ) {
+		List<MapUpdateCommand> updatesInWorld = batch.updatesInWorld;
+		ArrayList<IBlockData> IBDMap=batch.IBDMap;
+		Integer[] applyOrder=batch.applyOrder;
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+
+		// the updates are staged one chunk section at a time, so each chunk and section is only looked up once
+		long batchSectionKey=Long.MIN_VALUE;
+		net.minecraft.server.v1_10_R1.Chunk batchChunk=null;
+		net.minecraft.server.v1_10_R1.ChunkSection batchSection=null;
+		for (int orderIndex=batch.nextOrderIndex;orderIndex<applyOrder.length;orderIndex++) { 
+			int mapUpdateIndex=applyOrder[orderIndex];
+			MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
+			if(i==null || i.isUnchanged() || i.getTypeID()<0 || i.getWorldEditBaseBlock()!=null)
+				continue;
+			long sectionKey=sectionKey(i.getNewBlockLocation());
+			if(sectionKey!=batchSectionKey) {
+				// out of time for this tick, carry on from the next section in the next one
+				if(batchChunk!=null && System.currentTimeMillis()>deadline) {
+					batch.nextOrderIndex=orderIndex;
+					return false;
+				}
+				int cx=i.getNewBlockLocation().getX()>>4;
+				int cz=i.getNewBlockLocation().getZ()>>4;
+				if(batchChunk==null || batchChunk.locX!=cx || batchChunk.locZ!=cz) {
+					batchChunk=nativeWorld.getChunkAt(cx, cz);
+				}
+				batchSection=batchChunk.getSections()[i.getNewBlockLocation().getY()>>4];
+				batchSectionKey=sectionKey;
+			}
+			int dstX=i.getNewBlockLocation().getX();
+			int dstY=i.getNewBlockLocation().getY();
+			int dstZ=i.getNewBlockLocation().getZ();
+			int existingType=0;
+			byte existingData=0;
+			if(batchSection!=null) {
+				IBlockData existingIBD=batchSection.getType(dstX&15, dstY&15, dstZ&15);
+				existingType=CraftMagicNumbers.getId(existingIBD.getBlock());
+				existingData=(byte)existingIBD.getBlock().toLegacyData(existingIBD);
+			}
+			int newType=i.getTypeID();
+			byte newData=i.getDataID();
+			
+			// delay color changes if possible
+			if(Settings.DelayColorChanges && i.getCraft()!=null) {
+				if(existingType==newType && existingData!=newData) {
+					boolean canBeDelayed=false;
+					if(existingType==35) { // you can delay wool blocks, except light gray ones
+						canBeDelayed=true;
+						if(existingData==8 || newData==8) {
+							canBeDelayed=false;
 						}
 					}
-					if(IBDMap.size()<=mapUpdateIndex)
-						IBDMap.add(null);
-					if(tileMap.size()<=mapUpdateIndex)
-						tileMap.add(null);
-					if(nextTickMap.size()<=mapUpdateIndex)
-						nextTickMap.add(null);
-				}
-				
-				blockUpdatesPerCraft.clear();
-					
-				// now do the block updates, move entities when you set the block they are on
-				for (int mapUpdateIndex=0;mapUpdateIndex<updatesInWorld.size();mapUpdateIndex++) { 
-					MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
-					boolean madeChanges=false;
-					if(i!=null) {
-						if(i.getTypeID()>=0) {
-							if(i.getWorldEditBaseBlock()==null) {
-								Block srcBlock;
-								if(i.getOldBlockLocation()!=null) {
-									srcBlock=w.getBlockAt(i.getOldBlockLocation().getX(), i.getOldBlockLocation().getY(), i.getOldBlockLocation().getZ());
-								} else {
-									srcBlock=null;
-								}
-								Block dstBlock=w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ());
-								int existingType=dstBlock.getTypeId();
-								byte existingData=dstBlock.getData();
-								int newType=i.getTypeID();
-								byte newData=i.getDataID();
-								boolean delayed=false;
-								
-								// delay color changes if possible
-								if(Settings.DelayColorChanges && i.getCraft()!=null) {
-									if(existingType==newType && existingData!=newData) {
-										boolean canBeDelayed=false;
-										if(existingType==35) { // you can delay wool blocks, except light gray ones
-											canBeDelayed=true;
-											if(existingData==8 || newData==8) {
-												canBeDelayed=false;
-											}
-										}
-										if(existingType==159) { // you can delay stained clay, except all gray and black ones
-											canBeDelayed=true;
-											if(existingData==7 || newData==7) {
-												canBeDelayed=false;
-											}
-											if(existingData==8 || newData==8) {
-												canBeDelayed=false;
-											}
-											if(existingData==15 || newData==15) {
-												canBeDelayed=false;
-											}
-										}
-										if(existingType==95) { // all stained glass can be delayed
-											canBeDelayed=true;
-										}
-										if(existingType==160) { // all glass panes can be delayed
-											canBeDelayed=true;
-										}
-										if(existingType==171) { // all carpet can be delayed
-											canBeDelayed=true;
-										}
-										if(existingType==239) { // all glazed terracotta be delayed
-											canBeDelayed=true;
-										}
-										if(existingType==251) { // all concrete can be delayed
-											canBeDelayed=true;
-										}
-										if(existingType==252) { // all concrete powder can be delayed
-											canBeDelayed=true;
-										}
-											
-										if(canBeDelayed && i.getCraft().getScheduledBlockChanges()!=null) {
-											long whenToChange=System.currentTimeMillis()+5000;
-											MapUpdateCommand newMup=new MapUpdateCommand(i.getNewBlockLocation(),newType,newData,null);
-											HashMap<MapUpdateCommand, Long> sUpd=i.getCraft().getScheduledBlockChanges();
-											boolean alreadyPresent=false;
-											for(MapUpdateCommand j : sUpd.keySet()) {
-												if(j.getNewBlockLocation().equals(newMup.getNewBlockLocation())) {
-													alreadyPresent=true;
-													break;
-												}
-											}
-											if(!alreadyPresent) {
-												i.getCraft().getScheduledBlockChanges().put(newMup, whenToChange);
-											}
-											delayed=true;
-										}
-									}
-								}
-								
-								// move the actual block
-								if(!delayed) {
-									net.minecraft.server.v1_10_R1.Chunk nativeDstChunk = ( ( CraftChunk ) dstBlock.getChunk() ).getHandle();
-									BlockPosition dstBlockPos=new BlockPosition(dstBlock.getX(), dstBlock.getY(), dstBlock.getZ());
-									net.minecraft.server.v1_10_R1.Chunk nativeSrcChunk = null;
-									BlockPosition srcBlockPos=null;
-									if(srcBlock!=null) {
-										nativeSrcChunk=( ( CraftChunk ) srcBlock.getChunk() ).getHandle();
-										srcBlockPos=new BlockPosition(srcBlock.getX(), srcBlock.getY(), srcBlock.getZ());
-									}
-									IBlockData dstIBD;
-
-									if(existingType!=newType || existingData!=newData) { // only place the actual block if it has changed
-										// if there is a source block, copy the data from it, modifying with rotation (note that some updates don't have source blocks, like a repair)
-										if(srcBlock!=null) {
-											dstIBD = IBDMap.get(mapUpdateIndex);
-											dstIBD = dstIBD.a(ROTATION[i.getRotation().ordinal()]);
-
-										} else {
-											// if no source block, just make the new block using the type and data info
-											dstIBD = CraftMagicNumbers.getBlock(newType).fromLegacyData(newData);
-										}
-										// this actually creates the block
-										net.minecraft.server.v1_10_R1.ChunkSection dstSection=nativeDstChunk.getSections()[dstBlock.getY()>>4];
-										if (dstSection == null) {
-											// Put a GLASS block to initialize the section. It will be replaced next with the real block.
-											nativeDstChunk.a(dstBlockPos, net.minecraft.server.v1_10_R1.Blocks.GLASS.getBlockData());
-											dstSection = nativeDstChunk.getSections()[dstBlockPos.getY() >> 4];
-										}
-
-										dstSection.setType(dstBlock.getX()&15, dstBlock.getY()&15, dstBlock.getZ()&15, dstIBD);
-										madeChanges=true;
-										addBlockUpdateTracking(i.getCraft());
-									}
-
-
-									if(srcBlock!=null) {
-										// if you had a source block, also move the tile entity, and if there is a next tick entry, move that too
-										TileEntity tileEntity=tileMap.get(mapUpdateIndex);
-										if (tileEntity != null) {
-											tileEntity.setPosition(dstBlockPos);
-											addBlockUpdateTracking(i.getCraft());
-											madeChanges=true;
-											if(i.getTypeID()==54 || i.getTypeID()==146) {
-												addBlockUpdateTracking(i.getCraft(),(int)(i.getCraft().getOrigBlockCount()*0.005));											
-											}
-											nativeDstChunk.getTileEntities().put(dstBlockPos, tileEntity);
-											if(tileEntity instanceof TileEntitySign) {
-												sendSignToPlayers(w,i);
-											}
-											if (nativeWorld.capturedTileEntities.containsKey(srcBlockPos)) {
-												// Is this really necessary?
-												nativeWorld.capturedTileEntities.remove(srcBlockPos);
-												nativeWorld.capturedTileEntities.put(dstBlockPos, tileEntity);
-											}
-										}
-										
-										NextTickListEntry entry=nextTickMap.get(mapUpdateIndex);
-										if (entry != null) {
-											final long currentTime = nativeWorld.worldData.getTime();
-											BlockPosition position=entry.a;
-											int dx=i.getNewBlockLocation().getX()-i.getOldBlockLocation().getX();
-											int dy=i.getNewBlockLocation().getY()-i.getOldBlockLocation().getY();
-											int dz=i.getNewBlockLocation().getZ()-i.getOldBlockLocation().getZ();
-											position=position.a(dx,dy,dz);
-											nativeWorld.b(position, entry.a(), (int)(entry.b - currentTime), entry.c); 
-										}
-
-									}
-								}								
-								
-								// move entities that were on the block you just placed
-								if( entityMap.containsKey(i.getNewBlockLocation())) {
-									List<EntityUpdateCommand> mapUpdateList=entityMap.get(i.getNewBlockLocation());
-									for(EntityUpdateCommand entityUpdate : mapUpdateList) {
-										Entity entity=entityUpdate.getEntity();
-										if(entity instanceof Player) {
-											net.minecraft.server.v1_10_R1.EntityPlayer craftPlayer = ((CraftPlayer) entity).getHandle();
-										    craftPlayer.setPositionRotation(entityUpdate.getNewLocation().getX(), entityUpdate.getNewLocation().getY(), entityUpdate.getNewLocation().getZ(), entityUpdate.getNewLocation().getYaw(), craftPlayer.pitch);
-										    Location location = new Location(null, craftPlayer.locX, craftPlayer.locY, craftPlayer.locZ, craftPlayer.yaw, craftPlayer.pitch);
-										    craftPlayer.playerConnection.teleport(location);
-											// send the blocks around the player to the player, so they don't fall through the floor or get bumped by other blocks
-											Player p=(Player)entity;
-											for ( MapUpdateCommand muc : updatesInWorld ) {
-												if(muc!=null) {
-													int disty=Math.abs(muc.getNewBlockLocation().getY()-entityUpdate.getNewLocation().getBlockY());
-													int distx=Math.abs(muc.getNewBlockLocation().getX()-entityUpdate.getNewLocation().getBlockX());
-													int distz=Math.abs(muc.getNewBlockLocation().getZ()-entityUpdate.getNewLocation().getBlockZ());
-													if(disty<2 && distx<2 && distz<2) {
-														Location nloc=new Location(w, muc.getNewBlockLocation().getX(), muc.getNewBlockLocation().getY(), muc.getNewBlockLocation().getZ());
-														p.sendBlockChange(nloc, muc.getTypeID(), muc.getDataID());
-													}
-												}
-											}
-										} else {
-											entity.teleport(entityUpdate.getNewLocation());
-										}
-									}
-									entityMap.remove(i.getNewBlockLocation());
-								}
-							} else { // this is for worldeditbaseblock!=null, IE: a repair
-								w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).setTypeId(i.getTypeID());
-								w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).setData(i.getDataID());
-								madeChanges=true;
-								// put inventory into dispensers if its a repair
-								if(i.getTypeID()==23) {
-									BaseBlock bb=(BaseBlock) i.getWorldEditBaseBlock();
-									DispenserBlock dispBlock=new DispenserBlock(bb.getData());
-									dispBlock.setNbtData(bb.getNbtData());
-									int numFireCharges=0;
-									int numTNT=0;
-									int numWater=0;
-									for(BaseItemStack bi : dispBlock.getItems()) {
-										if(bi!=null) {
-											if(bi.getType()==46)
-												numTNT+=bi.getAmount();
-											if(bi.getType()==385)
-												numFireCharges+=bi.getAmount();
-											if(bi.getType()==326)
-												numWater+=bi.getAmount();
-										}
-									}
-									Dispenser disp=(Dispenser) w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).getState();
-									if(numFireCharges>0) {
-										ItemStack fireItems=new ItemStack(Material.FIREBALL,numFireCharges);
-										disp.getInventory().addItem(fireItems);
-									}
-									if(numTNT>0) {
-										ItemStack TNTItems=new ItemStack(Material.TNT,numTNT);
-										disp.getInventory().addItem(TNTItems);
-									}	
-									if(numWater>0) {
-										ItemStack WaterItems=new ItemStack(Material.WATER_BUCKET,numWater);
-										disp.getInventory().addItem(WaterItems);
-									}	
-								}
-								if(i.getWorldEditBaseBlock() instanceof SignBlock) {
-									BlockState state=w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).getState();
-									Sign s=(Sign)state;
-									for(int line=0; line<((SignBlock)i.getWorldEditBaseBlock()).getText().length; line++) {
-										s.setLine( line, ((SignBlock)i.getWorldEditBaseBlock()).getText()[line] );
-									}
-									((CraftBlockState)s).update(false, false);
-								}								
-							}
-						} else {
-							if(i.getTypeID()<-10) { // don't bother with tiny explosions
-								float explosionPower=i.getTypeID();
-								explosionPower=0.0F-explosionPower/100.0F;
-                                Location loc = new Location(w, i.getNewBlockLocation().getX()+0.5, i.getNewBlockLocation().getY()+0.5, i.getNewBlockLocation().getZ());
-                                this.createExplosion(loc, explosionPower);
-								//w.createExplosion(m.getNewBlockLocation().getX()+0.5, m.getNewBlockLocation().getY()+0.5, m.getNewBlockLocation().getZ()+0.5, explosionPower);
+					if(existingType==159) { // you can delay stained clay, except all gray and black ones
+						canBeDelayed=true;
+						if(existingData==7 || newData==7) {
+							canBeDelayed=false;
+						}
+						if(existingData==8 || newData==8) {
+							canBeDelayed=false;
+						}
+						if(existingData==15 || newData==15) {
+							canBeDelayed=false;
+						}
+					}
+					if(existingType==95) { // all stained glass can be delayed
+						canBeDelayed=true;
+					}
+					if(existingType==160) { // all glass panes can be delayed
+						canBeDelayed=true;
+					}
+					if(existingType==171) { // all carpet can be delayed
+						canBeDelayed=true;
+					}
+					if(existingType==239) { // all glazed terracotta be delayed
+						canBeDelayed=true;
+					}
+					if(existingType==251) { // all concrete can be delayed
+						canBeDelayed=true;
+					}
+					if(existingType==252) { // all concrete powder can be delayed
+						canBeDelayed=true;
+					}
+						
+					if(canBeDelayed && i.getCraft().getScheduledBlockChanges()!=null) {
+						long whenToChange=System.currentTimeMillis()+5000;
+						MapUpdateCommand newMup=new MapUpdateCommand(i.getNewBlockLocation(),newType,newData,null);
+						HashMap<MapUpdateCommand, Long> sUpd=i.getCraft().getScheduledBlockChanges();
+						boolean alreadyPresent=false;
+						for(MapUpdateCommand j : sUpd.keySet()) {
+							if(j.getNewBlockLocation().equals(newMup.getNewBlockLocation())) {
+								alreadyPresent=true;
+								break;
 							}
 						}
+						if(!alreadyPresent) {
+							i.getCraft().getScheduledBlockChanges().put(newMup, whenToChange);
+						}
+						batch.delayedUpdates.set(mapUpdateIndex);
+						continue;
 					}
-					if(madeChanges) { // send map updates to clients, and perform various checks
-						Location loc=new Location(w,i.getNewBlockLocation().getX(),i.getNewBlockLocation().getY(),i.getNewBlockLocation().getZ());
-						((CraftBlockState)w.getBlockAt(loc).getState()).update(false, false);
+				}
+			}
+			
+			if(existingType!=newType || existingData!=newData) { // only place the actual block if it has changed
+				IBlockData dstIBD;
+				// if there is a source block, copy the data from it, modifying with rotation (note that some updates don't have source blocks, like a repair)
+				if(i.getOldBlockLocation()!=null) {
+					dstIBD = IBDMap.get(mapUpdateIndex);
+					for(int turn=0; turn<i.getTurns(); turn++) {
+						dstIBD = dstIBD.a(ROTATION[i.getRotation().ordinal()]);
 					}
+				} else {
+					// if no source block, just make the new block using the type and data info
+					dstIBD = CraftMagicNumbers.getBlock(newType).fromLegacyData(newData);
 				}
-				
-				// clean up any left over tile entities on blocks that do not need tile entities
-				for ( MapUpdateCommand i : updatesInWorld ) { 
-					if(i!=null)
-						if(Arrays.binarySearch(tileEntityBlocksToPreserve,i.getTypeID())<0) { // TODO: make this only run when the original block had tile data, but after it cleans up my corrupt chunks >.>
-							Block dstBlock=w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ());
-							net.minecraft.server.v1_10_R1.Chunk nativeDstChunk = ( ( CraftChunk ) dstBlock.getChunk() ).getHandle();
-							BlockPosition dstBlockPos=new BlockPosition(dstBlock.getX(), dstBlock.getY(), dstBlock.getZ());
-							nativeDstChunk.getTileEntities().remove(dstBlockPos);
-						}
+				batch.stagedBlocks[mapUpdateIndex]=dstIBD;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Writes the staged blocks of a batch into their chunk sections, one section at a time, until they are all written
+	 * or until the deadline has passed. The sections are changed directly, so players don't see the blocks until
+	 * finishBatch sends them, and isInPendingBatch keeps anything else from changing the blocks of the batch meanwhile
+	 *
+	 * @return true once every block of the batch is written
+	 */
+	private boolean writeBatch( World w, WorldUpdateBatch batch, long deadline ) {
+		List<MapUpdateCommand> updatesInWorld = batch.updatesInWorld;
+		Integer[] applyOrder=batch.applyOrder;
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+
+		long batchSectionKey=Long.MIN_VALUE;
+		net.minecraft.server.v1_10_R1.Chunk batchChunk=null;
+		net.minecraft.server.v1_10_R1.ChunkSection batchSection=null;
+		ChunkUpdater batchLight=null;
+		int batchSectionY=0;
+		boolean[] batchColumns=new boolean[256];
+		for (int orderIndex=batch.nextWriteIndex;orderIndex<applyOrder.length;orderIndex++) { 
+			int mapUpdateIndex=applyOrder[orderIndex];
+			MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
+			IBlockData dstIBD=batch.stagedBlocks[mapUpdateIndex];
+			if(i==null || dstIBD==null || batch.delayedUpdates.get(mapUpdateIndex))
+				continue;
+			long sectionKey=sectionKey(i.getNewBlockLocation());
+			if(sectionKey!=batchSectionKey) {
+				if(batchChunk!=null) {
+					finishSection(batchChunk, batchSectionY, batchColumns);
+					// out of time for this tick, carry on from the next section in the next one
+					if(System.currentTimeMillis()>deadline) {
+						batch.nextWriteIndex=orderIndex;
+						return false;
+					}
+				}
+				int cx=i.getNewBlockLocation().getX()>>4;
+				int cz=i.getNewBlockLocation().getZ()>>4;
+				if(batchChunk==null || batchChunk.locX!=cx || batchChunk.locZ!=cz) {
+					batchChunk=nativeWorld.getChunkAt(cx, cz);
+					// the light is fixed later, only where blocks changed
+					if(Settings.CompatibilityMode==false) {
+						batchLight=FastBlockChanger.getInstance().getChunk(nativeWorld, cx, cz, false);
+					}
 				}
-				
-				// put in smoke or effects
-				for ( MapUpdateCommand i : updatesInWorld ) {
-					if(i!=null) {
-						if(i.getSmoke()==1) {
-							Location loc=new Location(w, i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(),  i.getNewBlockLocation().getZ());
-							w.playEffect(loc, Effect.SMOKE, 4);
+				batchSectionY=i.getNewBlockLocation().getY()>>4;
+				batchSection=batchChunk.getSections()[batchSectionY];
+				batchSectionKey=sectionKey;
+			}
+			
+			// move the actual block
+			int dstX=i.getNewBlockLocation().getX();
+			int dstY=i.getNewBlockLocation().getY();
+			int dstZ=i.getNewBlockLocation().getZ();
+			BlockPosition dstBlockPos=new BlockPosition(dstX, dstY, dstZ);
+			int existingType=0;
+			if(batchSection!=null) {
+				existingType=CraftMagicNumbers.getId(batchSection.getType(dstX&15, dstY&15, dstZ&15).getBlock());
+			}
+			// this actually creates the block
+			if (batchSection == null) {
+				// Put a GLASS block to initialize the section. It will be replaced next with the real block.
+				batchChunk.a(dstBlockPos, net.minecraft.server.v1_10_R1.Blocks.GLASS.getBlockData());
+				batchSection = batchChunk.getSections()[batchSectionY];
+			}
+
+			batchSection.setType(dstX&15, dstY&15, dstZ&15, dstIBD);
+			batchColumns[((dstZ&15)<<4)|(dstX&15)]=true;
+			// a block with a tile entity was replaced by another block, its tile entity goes when the batch is done
+			// unless a moved tile entity takes its place
+			int placedType=CraftMagicNumbers.getId(dstIBD.getBlock());
+			if(existingType!=placedType && (BlockUtils.blockHasTileEntity(existingType) || batchChunk.getTileEntities().containsKey(dstBlockPos))) {
+				batch.staleTiles.add(dstBlockPos);
+			}
+			// a block turned or recolored lets light through just the same
+			if(batchLight!=null && existingType!=placedType) {
+				batchLight.markForRelight(dstX, dstY, dstZ);
+			}
+			addBlockUpdateTracking(i.getCraft());
+			// map updates are sent to clients once the whole batch is in place
+			batch.changedBlocks.add(i.getNewBlockLocation());
+		}
+		
+		if(batchChunk!=null) {
+			finishSection(batchChunk, batchSectionY, batchColumns);
+		}
+		batch.nextWriteIndex=applyOrder.length;
+		return true;
+	}
+
+	/**
+	 * Moves the tile entities and scheduled ticks of a written batch along with their blocks, and carries out its
+	 * repairs and explosions. This is left until every block of the batch is in place, so that nothing runs on a half
+	 * written craft
+	 */
+	private void moveTilesAndTicks( World w, WorldUpdateBatch batch ) {
+		List<MapUpdateCommand> updatesInWorld = batch.updatesInWorld;
+		ArrayList<TileEntity> tileMap=batch.tileMap;
+		ArrayList<NextTickListEntry> nextTickMap=batch.nextTickMap;
+		Integer[] applyOrder=batch.applyOrder;
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+
+		for (int orderIndex=0;orderIndex<applyOrder.length;orderIndex++) { 
+			int mapUpdateIndex=applyOrder[orderIndex];
+			MapUpdateCommand i=updatesInWorld.get(mapUpdateIndex);
+			if(i==null)
+				continue;
+			if(i.isUnchanged()) {
+				moveScheduledTick(nativeWorld, i, nextTickMap.get(mapUpdateIndex));
+				continue;
+			}
+			boolean madeChanges=false;
+			if(i.getTypeID()>=0 && i.getWorldEditBaseBlock()==null) {
+				MovecraftLocation srcBlock=i.getOldBlockLocation();
+				if(!batch.delayedUpdates.get(mapUpdateIndex) && srcBlock!=null) {
+					BlockPosition dstBlockPos=new BlockPosition(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ());
+					// if you had a source block, also move the tile entity, and if there is a next tick entry, move that too
+					TileEntity tileEntity=tileMap.get(mapUpdateIndex);
+					if (tileEntity != null) {
+						net.minecraft.server.v1_10_R1.Chunk nativeSrcChunk=nativeWorld.getChunkAt(srcBlock.getX()>>4, srcBlock.getZ()>>4);
+						net.minecraft.server.v1_10_R1.Chunk nativeDstChunk=nativeWorld.getChunkAt(dstBlockPos.getX()>>4, dstBlockPos.getZ()>>4);
+						BlockPosition srcBlockPos=new BlockPosition(srcBlock.getX(), srcBlock.getY(), srcBlock.getZ());
+						// take it off its old position, unless another tile entity has moved there already
+						if(nativeSrcChunk.getTileEntities().get(srcBlockPos)==tileEntity) {
+							nativeSrcChunk.getTileEntities().remove(srcBlockPos);
+						}
+						tileEntity.setPosition(dstBlockPos);
+						addBlockUpdateTracking(i.getCraft());
+						madeChanges=true;
+						if(i.getTypeID()==54 || i.getTypeID()==146) {
+							addBlockUpdateTracking(i.getCraft(),(int)(i.getCraft().getOrigBlockCount()*0.005));											
 						}
-						if(Settings.SilhouetteViewDistance>0 && silhouetteBlocksSent<Settings.SilhouetteBlockCount) {
-							if(sendSilhouetteToPlayers(w,i))
-								silhouetteBlocksSent++;
+						nativeDstChunk.getTileEntities().put(dstBlockPos, tileEntity);
+						if(tileEntity instanceof TileEntitySign) {
+							batch.movedSigns.add(i.getNewBlockLocation());
+						}
+						if (nativeWorld.capturedTileEntities.containsKey(srcBlockPos)) {
+							// Is this really necessary?
+							nativeWorld.capturedTileEntities.remove(srcBlockPos);
+							nativeWorld.capturedTileEntities.put(dstBlockPos, tileEntity);
 						}
 					}
-				}
 					
-				// and set all crafts that were updated to not processing
-				if(CraftManager.getInstance().getCraftsInWorld(w)!=null) {
-					for ( MapUpdateCommand c : updatesInWorld ) {
-						if(c!=null) {
-							Craft craft=c.getCraft();
-							if(craft!=null) {
-								if(!craft.isNotProcessing()) {
-									craft.setProcessing(false);
-								}
-							}
+					moveScheduledTick(nativeWorld, i, nextTickMap.get(mapUpdateIndex));
+				}
+			} else if(i.getTypeID()>=0) { // this is for worldeditbaseblock!=null, IE: a repair
+				w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).setTypeId(i.getTypeID());
+				w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).setData(i.getDataID());
+				madeChanges=true;
+				// put inventory into dispensers if its a repair
+				if(i.getTypeID()==23) {
+					BaseBlock bb=(BaseBlock) i.getWorldEditBaseBlock();
+					DispenserBlock dispBlock=new DispenserBlock(bb.getData());
+					dispBlock.setNbtData(bb.getNbtData());
+					int numFireCharges=0;
+					int numTNT=0;
+					int numWater=0;
+					for(BaseItemStack bi : dispBlock.getItems()) {
+						if(bi!=null) {
+							if(bi.getType()==46)
+								numTNT+=bi.getAmount();
+							if(bi.getType()==385)
+								numFireCharges+=bi.getAmount();
+							if(bi.getType()==326)
+								numWater+=bi.getAmount();
+						}
+					}
+					Dispenser disp=(Dispenser) w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).getState();
+					if(numFireCharges>0) {
+						ItemStack fireItems=new ItemStack(Material.FIREBALL,numFireCharges);
+						disp.getInventory().addItem(fireItems);
+					}
+					if(numTNT>0) {
+						ItemStack TNTItems=new ItemStack(Material.TNT,numTNT);
+						disp.getInventory().addItem(TNTItems);
+					}	
+					if(numWater>0) {
+						ItemStack WaterItems=new ItemStack(Material.WATER_BUCKET,numWater);
+						disp.getInventory().addItem(WaterItems);
+					}	
+				}
+				if(i.getWorldEditBaseBlock() instanceof SignBlock) {
+					BlockState state=w.getBlockAt(i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).getState();
+					Sign s=(Sign)state;
+					for(int line=0; line<((SignBlock)i.getWorldEditBaseBlock()).getText().length; line++) {
+						s.setLine( line, ((SignBlock)i.getWorldEditBaseBlock()).getText()[line] );
+					}
+					((CraftBlockState)s).update(false, false);
+				}								
+			} else {
+				if(i.getTypeID()<-10) { // don't bother with tiny explosions
+					float explosionPower=i.getTypeID();
+					explosionPower=0.0F-explosionPower/100.0F;
+					Location loc = new Location(w, i.getNewBlockLocation().getX()+0.5, i.getNewBlockLocation().getY()+0.5, i.getNewBlockLocation().getZ());
+					this.createExplosion(loc, explosionPower);
+					//w.createExplosion(m.getNewBlockLocation().getX()+0.5, m.getNewBlockLocation().getY()+0.5, m.getNewBlockLocation().getZ()+0.5, explosionPower);
+				}
+			}
+			// blocks that were written are already in the list
+			if(madeChanges && batch.stagedBlocks[mapUpdateIndex]==null) {
+				batch.changedBlocks.add(i.getNewBlockLocation());
+			}
+		}
+	}
+
+	/**
+	 * Finishes a batch whose blocks are all written: moves what goes along with the blocks, shows the blocks to the
+	 * players all at once, and lets the crafts it moved carry on
+	 */
+	private void finishBatch( World w, WorldUpdateBatch batch ) {
+		List<MapUpdateCommand> updatesInWorld = batch.updatesInWorld;
+		List<ItemDropUpdateCommand> itemDropUpdatesInWorld = batch.itemDropUpdatesInWorld;
 
-						}						
+		moveTilesAndTicks(w, batch);
+
+		// send map updates to clients
+		sendChangedBlocks(w, batch.changedBlocks);
+		sendSignsToPlayers(w, batch.movedSigns);
+		moveEntities(w, batch);
+		
+		// clean up the tile entities of blocks that were replaced, where no tile entity was moved in for the new block.
+		// Moved tile entities were already taken off their old positions as they moved, so only these positions are left
+		// to check
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+		for ( BlockPosition pos : batch.staleTiles ) {
+			net.minecraft.server.v1_10_R1.Chunk nativeDstChunk = nativeWorld.getChunkAt(pos.getX()>>4, pos.getZ()>>4);
+			if(Arrays.binarySearch(tileEntityBlocksToPreserve, CraftMagicNumbers.getId(nativeDstChunk.getBlockData(pos).getBlock()))<0) {
+				nativeDstChunk.getTileEntities().remove(pos);
+			}
+		}
+		
+		// put in smoke or effects
+		for ( MapUpdateCommand i : updatesInWorld ) {
+			if(i!=null) {
+				if(i.getSmoke()==1) {
+					Location loc=new Location(w, i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(),  i.getNewBlockLocation().getZ());
+					w.playEffect(loc, Effect.SMOKE, 4);
+				}
+			}
+		}
+			
+		// and set all crafts that were updated to not processing
+		HashSet<Craft> updatedCrafts=new HashSet<Craft>();
+		if(CraftManager.getInstance().getCraftsInWorld(w)!=null) {
+			for ( MapUpdateCommand c : updatesInWorld ) {
+				if(c!=null) {
+					Craft craft=c.getCraft();
+					if(craft!=null) {
+						if(!craft.isNotProcessing()) {
+							craft.setProcessing(false);
+						}
+						updatedCrafts.add(craft);
 					}
+
+				}						
+			}
+		}
+		// start the next step of cruising crafts, or whatever the pilot asked for while the craft was busy,
+		// right away, it will be ready for the next tick
+		if(!updatedCrafts.isEmpty()) {
+			updatedCrafts.retainAll(Arrays.asList(CraftManager.getInstance().getCraftsInWorld(w)));
+		}
+		// crafts that moved, and blocks changed by anything else, may now be in the way of a cruising craft
+		if(CraftManager.getInstance().getCraftsInWorld(w)!=null) {
+			for ( Craft moved : updatedCrafts ) {
+				int[][][] hb=moved.getHitBox();
+				if(hb==null || hb.length==0)
+					continue;
+				for ( Craft other : CraftManager.getInstance().getCraftsInWorld(w) ) {
+					if(other!=moved) {
+						other.invalidateCorridor(moved.getMinX(), 0, moved.getMinZ(), moved.getMinX()+hb.length-1, 255, moved.getMinZ()+hb[0].length-1);
+					}
+				}
+			}
+			for ( MapUpdateCommand c : updatesInWorld ) {
+				if(c!=null && c.getCraft()==null) {
+					MovecraftLocation l=c.getNewBlockLocation();
+					CraftManager.getInstance().invalidateCorridors(w, l.getX(), l.getY(), l.getZ());
 				}
+			}
+		}
+		// the players the crafts carried have been moved by now, they stay aboard the craft they ended up on
+		List<Player> carriedPlayers=new ArrayList<Player>();
+		for(EntityUpdateCommand entityUpdate : batch.entityMoves) {
+			if(entityUpdate.getEntity() instanceof Player)
+				carriedPlayers.add((Player)entityUpdate.getEntity());
+		}
+		for ( Craft craft : updatedCrafts ) {
+			CraftManager.getInstance().craftMoved(craft, carriedPlayers);
+			craft.submitPendingMove();
+			if(craft.getCruising() && !craft.getSinking()) {
+				AsyncManager.getInstance().processCruise(craft);
+			}
+		}
+		AsyncManager.getInstance().submitProjectileBatches();
+		
+		// show far away players where the crafts have gone
+		sendSilhouettes(w, updatedCrafts);
 
 /*				// send updates to clients
-				for ( MapUpdateCommand c : updatesInWorld ) {
-					if(c!=null) {
-						Location loc=new Location(w,c.getNewBlockLocation().getX(),c.getNewBlockLocation().getY(),c.getNewBlockLocation().getZ());
-						if(c.getTypeID()!=c.getCurrentTypeID() || c.getDataID()!=c.getCurrentDataID())
-							w.getBlockAt(loc).getState().update();
-					}
-				}*/
-				
-				// queue chunks for lighting recalc
-				if(Settings.CompatibilityMode==false) {
-					for(net.minecraft.server.v1_10_R1.Chunk c : chunksToRelight) {
-						ChunkUpdater fChunk=FastBlockChanger.getInstance().getChunk(c.world,c.locX,c.locZ,true);
-						for(int bx=0;bx<16;bx++) {
-							for(int bz=0;bz<16;bz++) {
-								for(int by=0;by<4;by++) {
-									fChunk.bits[bx][bz][by]=Long.MAX_VALUE;										
-								}
-							}
-						}
-						fChunk.last_modified=System.currentTimeMillis();
-						c.e();
-					}
-				}
-				
-				long endTime=System.currentTimeMillis();
-				if(Settings.Debug) {
-					Movecraft.getInstance().getServer().broadcastMessage("Map update took (ms): "+(endTime-startTime));
-				}
-
-                //drop harvested yield 
-                if(itemDropUpdatesInWorld!=null) {
-					for( ItemDropUpdateCommand i : itemDropUpdatesInWorld) {
-						if(i!=null) {                                                        
-                            final World world = w;
-                            final Location loc = i.getLocation();
-                            final ItemStack stack = i.getItemStack();
-							if(i.getItemStack() instanceof ItemStack) {
-								// drop Item
-								BukkitTask dropTask = new BukkitRunnable() {
-									@Override
-									public void run() {
-                                                                            world.dropItemNaturally(loc, stack);
-									}
-								}.runTaskLater( Movecraft.getInstance(), ( 20 * 1 ) );
+		for ( MapUpdateCommand c : updatesInWorld ) {
+			if(c!=null) {
+				Location loc=new Location(w,c.getNewBlockLocation().getX(),c.getNewBlockLocation().getY(),c.getNewBlockLocation().getZ());
+				if(c.getTypeID()!=c.getCurrentTypeID() || c.getDataID()!=c.getCurrentDataID())
+					w.getBlockAt(loc).getState().update();
+			}
+		}*/
+		
+		long endTime=System.currentTimeMillis();
+		if(Settings.Debug) {
+			Movecraft.getInstance().getServer().broadcastMessage("Map update took (ms): "+(endTime-batch.startTime));
+		}
+
+        //drop harvested yield 
+        if(itemDropUpdatesInWorld!=null) {
+			for( ItemDropUpdateCommand i : itemDropUpdatesInWorld) {
+				if(i!=null) {                                                        
+                    final World world = w;
+                    final Location loc = i.getLocation();
+                    final ItemStack stack = i.getItemStack();
+					if(i.getItemStack() instanceof ItemStack) {
+						// drop Item
+						BukkitTask dropTask = new BukkitRunnable() {
+							@Override
+							public void run() {
+                                                                    world.dropItemNaturally(loc, stack);
 							}
-						}
+						}.runTaskLater( Movecraft.getInstance(), ( 20 * 1 ) );
 					}
 				}
 			}
 		}
-		
-		updates.clear();
-		entityUpdates.clear();
-        itemDropUpdates.clear();
 	}
         
-	private void sendSignToPlayers(World w, MapUpdateCommand i) {
-		BlockState bs= w.getBlockAt( i.getNewBlockLocation().getX(), i.getNewBlockLocation().getY(), i.getNewBlockLocation().getZ()).getState();
-		if(bs instanceof Sign) {
-			Sign sign = ( Sign ) bs;
-			for(Player p : w.getPlayers()) { // this is necessary because signs do not get updated client side correctly without refreshing the chunks, which causes a memory leak in the clients							
-				int playerChunkX=p.getLocation().getBlockX()>>4;
-				int playerChunkZ=p.getLocation().getBlockZ()>>4;
-				if(Math.abs(playerChunkX-sign.getChunk().getX())<4)
-					if(Math.abs(playerChunkZ-sign.getChunk().getZ())<4) {
-						p.sendBlockChange(sign.getLocation(), 63, (byte) 0);
-						p.sendBlockChange(sign.getLocation(), sign.getTypeId(), sign.getRawData());
+	/**
+	 * Adds the blocks the updates of a submission take or write
+	 */
+	static void addPositions( Set<MovecraftLocation> positions, WorldUpdateSubmission submission ) {
+		if ( submission.mapUpdates==null )
+			return;
+		for ( MapUpdateCommand i : submission.mapUpdates ) {
+			if ( i==null || i.getNewBlockLocation()==null )
+				continue;
+			positions.add( i.getNewBlockLocation() );
+			if ( i.getOldBlockLocation()!=null )
+				positions.add( i.getOldBlockLocation() );
+		}
+	}
+
+	/**
+	 * Tells whether the updates of a submission take or write any of the given blocks
+	 */
+	static boolean touchesPositions( Set<MovecraftLocation> positions, WorldUpdateSubmission submission ) {
+		if ( positions.isEmpty() || submission.mapUpdates==null )
+			return false;
+		for ( MapUpdateCommand i : submission.mapUpdates ) {
+			if ( i==null || i.getNewBlockLocation()==null )
+				continue;
+			if ( positions.contains( i.getNewBlockLocation() ) )
+				return true;
+			if ( i.getOldBlockLocation()!=null && positions.contains( i.getOldBlockLocation() ) )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tells whether a block is taken or written by a batch that is still being staged or written. Such a block must not
+	 * change until the batch is done, or the batch would copy or overwrite a block that is no longer there
+	 */
+	public boolean isInPendingBatch(World w, int x, int y, int z) {
+		if(batchesInProgress.isEmpty())
+			return false;
+		List<WorldUpdateBatch> batches=batchesInProgress.get(w);
+		if(batches==null)
+			return false;
+		MovecraftLocation l=new MovecraftLocation(x, y, z);
+		for(WorldUpdateBatch batch : batches) {
+			if(batch.positions.contains(l))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the entities a batch moves once all of its blocks are in place. Every entity handed in is moved, also
+	 * those standing on blocks that aren't written because they already match the block arriving there
+	 */
+	static List<EntityUpdateCommand> collectEntityMoves( List<WorldUpdateSubmission> worldSubmissions ) {
+		List<EntityUpdateCommand> entityMoves=new ArrayList<EntityUpdateCommand>();
+		for ( WorldUpdateSubmission submission : worldSubmissions ) {
+			if ( submission.entityUpdates == null )
+				continue;
+			for ( EntityUpdateCommand entityUpdate : submission.entityUpdates ) {
+				if ( entityUpdate != null )
+					entityMoves.add( entityUpdate );
+			}
+		}
+		return entityMoves;
+	}
+
+	/**
+	 * Schedules a tick taken from the old position of a block again at its new position
+	 */
+	private void moveScheduledTick(net.minecraft.server.v1_10_R1.World nativeWorld, MapUpdateCommand i, NextTickListEntry entry) {
+		if (entry == null)
+			return;
+		final long currentTime = nativeWorld.worldData.getTime();
+		BlockPosition position=entry.a;
+		int dx=i.getNewBlockLocation().getX()-i.getOldBlockLocation().getX();
+		int dy=i.getNewBlockLocation().getY()-i.getOldBlockLocation().getY();
+		int dz=i.getNewBlockLocation().getZ()-i.getOldBlockLocation().getZ();
+		position=position.a(dx,dy,dz);
+		nativeWorld.b(position, entry.a(), (int)(entry.b - currentTime), entry.c); 
+	}
+
+	/**
+	 * Returns the updates of a batch in the chunk sections that hold the blocks right around a location, that is, in
+	 * at most eight sections, without going through all the updates of the batch
+	 */
+	private List<MapUpdateCommand> getUpdatesNear(WorldUpdateBatch batch, Location loc) {
+		if(batch.updatesBySection==null) {
+			batch.updatesBySection=new HashMap<Long, List<MapUpdateCommand>>();
+			for(MapUpdateCommand muc : batch.updatesInWorld) {
+				if(muc==null || muc.getNewBlockLocation()==null)
+					continue;
+				long key=sectionKey(muc.getNewBlockLocation());
+				List<MapUpdateCommand> sectionUpdates=batch.updatesBySection.get(key);
+				if(sectionUpdates==null) {
+					sectionUpdates=new ArrayList<MapUpdateCommand>();
+					batch.updatesBySection.put(key, sectionUpdates);
+				}
+				sectionUpdates.add(muc);
+			}
+		}
+		List<MapUpdateCommand> near=new ArrayList<MapUpdateCommand>();
+		HashSet<Long> sections=new HashSet<Long>();
+		for(int dx=-1;dx<=1;dx+=2) {
+			for(int dy=-1;dy<=1;dy+=2) {
+				for(int dz=-1;dz<=1;dz+=2) {
+					int y=loc.getBlockY()+dy;
+					if(y<0 || y>255)
+						continue;
+					long key=sectionKey(new MovecraftLocation(loc.getBlockX()+dx, y, loc.getBlockZ()+dz));
+					if(sections.add(key)) {
+						List<MapUpdateCommand> sectionUpdates=batch.updatesBySection.get(key);
+						if(sectionUpdates!=null) {
+							near.addAll(sectionUpdates);
+						}
 					}
+				}
 			}
-			((CraftBlockState)sign).update(false, false);
 		}
+		return near;
 	}
 
-	private Random rand=new Random(); 
-	
-	private boolean sendSilhouetteToPlayers(World w, MapUpdateCommand i) {
-		boolean sendSil=false;
-		if(rand.nextInt(100)<15) {
-			sendSil=true;
-		}
-/*		if(i.getTypeID()==0) 
-			sendSil=true;
-		else 
-			if(i.getCurrentTypeID()!=null)
-				if(i.getTypeID()!=0 && i.getCurrentTypeID()==0) 
-					sendSil=true;*/
-		if(sendSil) {
-			for(Player p : w.getPlayers()) { // this is necessary because signs do not get updated client side correctly without refreshing the chunks, which causes a memory leak in the clients							
-				int playerX=p.getLocation().getBlockX();
-				int playerY=p.getLocation().getBlockY();
-				int playerZ=p.getLocation().getBlockZ();
-				int dist=(i.getNewBlockLocation().getX()-playerX)*(i.getNewBlockLocation().getX()-playerX);
-				dist+=(i.getNewBlockLocation().getY()-playerY)*(i.getNewBlockLocation().getY()-playerY);
-				dist+=(i.getNewBlockLocation().getZ()-playerZ)*(i.getNewBlockLocation().getZ()-playerZ);
-				if((dist<Settings.SilhouetteViewDistance*Settings.SilhouetteViewDistance)&&(dist>32*32)) {
-					net.minecraft.server.v1_10_R1.EntityPlayer craftPlayer = ((CraftPlayer) p).getHandle();
-					BlockPosition blockPosition = new BlockPosition(i.getNewBlockLocation().getX(),i.getNewBlockLocation().getY(),i.getNewBlockLocation().getZ());
-					PacketPlayOutWorldParticles packet = new PacketPlayOutWorldParticles(EnumParticle.VILLAGER_HAPPY, true, (float)i.getNewBlockLocation().getX(), (float)i.getNewBlockLocation().getY(), (float)i.getNewBlockLocation().getZ(), (float)1, (float)1, (float)1, 0, 9);
-
-					craftPlayer.playerConnection.sendPacket(packet);
-				}
-			}
-			return true;
-		} else {
-			return false;
+	/**
+	 * Takes the scheduled ticks, like those of redstone and flowing liquids, out of the area each craft moves its
+	 * blocks from, with one query of the world's tick list per craft instead of one per block
+	 *
+	 * @param otherTicks - gets the ticks found at a position that already had one
+	 * @return the first tick found at each position
+	 */
+	private HashMap<MovecraftLocation, NextTickListEntry> captureScheduledTicks(net.minecraft.server.v1_10_R1.World nativeWorld, List<MapUpdateCommand> updatesInWorld, List<NextTickListEntry> otherTicks) {
+		HashMap<Craft, int[]> areas=new HashMap<Craft, int[]>();
+		for(MapUpdateCommand i : updatesInWorld) {
+			if(i==null || i.getTypeID()<0 || i.getWorldEditBaseBlock()!=null || i.getOldBlockLocation()==null)
+				continue;
+			MovecraftLocation l=i.getOldBlockLocation();
+			int[] area=areas.get(i.getCraft());
+			if(area==null) {
+				areas.put(i.getCraft(), new int[]{l.getX(), l.getY(), l.getZ(), l.getX(), l.getY(), l.getZ()});
+			} else {
+				area[0]=Math.min(area[0], l.getX());
+				area[1]=Math.min(area[1], l.getY());
+				area[2]=Math.min(area[2], l.getZ());
+				area[3]=Math.max(area[3], l.getX());
+				area[4]=Math.max(area[4], l.getY());
+				area[5]=Math.max(area[5], l.getZ());
+			}
+		}
+		HashMap<MovecraftLocation, NextTickListEntry> ticks=new HashMap<MovecraftLocation, NextTickListEntry>();
+		for(int[] area : areas.values()) {
+			List<NextTickListEntry> entries=nativeWorld.a(new StructureBoundingBox(area[0], area[1], area[2], area[3]+1, area[4]+1, area[5]+1), true);
+			if(entries==null)
+				continue;
+			for(NextTickListEntry entry : entries) {
+				MovecraftLocation loc=new MovecraftLocation(entry.a.getX(), entry.a.getY(), entry.a.getZ());
+				if(ticks.containsKey(loc)) {
+					otherTicks.add(entry);
+				} else {
+					ticks.put(loc, entry);
+				}
+			}
+		}
+		return ticks;
+	}
+
+	/**
+	 * Sends the changed blocks to the players that track their chunks. The changes in a chunk go in one multi block
+	 * change packet, except for chunk sections with at least SectionResendThreshold changes, which are sent whole
+	 * instead
+	 */
+	private void sendChangedBlocks(World w, List<MovecraftLocation> changedBlocks) {
+		if(changedBlocks.isEmpty())
+			return;
+		net.minecraft.server.v1_10_R1.World nativeWorld=((CraftWorld)w).getHandle();
+		HashMap<Long, List<MovecraftLocation>> changesByChunk=new HashMap<Long, List<MovecraftLocation>>();
+		for(MovecraftLocation l : changedBlocks) {
+			long key=Craft.chunkKey(l.getX()>>4, l.getZ()>>4);
+			List<MovecraftLocation> chunkChanges=changesByChunk.get(key);
+			if(chunkChanges==null) {
+				chunkChanges=new ArrayList<MovecraftLocation>();
+				changesByChunk.put(key, chunkChanges);
+			}
+			chunkChanges.add(l);
+		}
+		PlayerChunkMap playerChunkMap=((WorldServer)nativeWorld).getPlayerChunkMap();
+		for(List<MovecraftLocation> chunkChanges : changesByChunk.values()) {
+			int cx=chunkChanges.get(0).getX()>>4;
+			int cz=chunkChanges.get(0).getZ()>>4;
+			PlayerChunk viewers=playerChunkMap.getChunk(cx, cz);
+			if(viewers==null || viewers.c.isEmpty())
+				continue;
+			net.minecraft.server.v1_10_R1.Chunk chunk=nativeWorld.getChunkAt(cx, cz);
+			
+			int[] sectionChanges=new int[16];
+			for(MovecraftLocation l : chunkChanges) {
+				sectionChanges[l.getY()>>4]++;
+			}
+			int resendMask=0;
+			if(Settings.SectionResendThreshold>0) {
+				for(int section=0;section<16;section++) {
+					if(sectionChanges[section]>=Settings.SectionResendThreshold) {
+						resendMask|=1<<section;
+					}
+				}
+			}
+			List<Packet<?>> packets=new ArrayList<Packet<?>>(2);
+			int bytes=0;
+			if(resendMask!=0) {
+				packets.add(new PacketPlayOutMapChunk(chunk, resendMask));
+				bytes+=Integer.bitCount(resendMask)*MAP_CHUNK_BYTES_PER_SECTION;
+			}
+			short[] positions=new short[chunkChanges.size()];
+			int count=0;
+			for(MovecraftLocation l : chunkChanges) {
+				if((resendMask & (1<<(l.getY()>>4)))==0) {
+					positions[count++]=(short)(((l.getX()&15)<<12) | ((l.getZ()&15)<<8) | l.getY());
+				}
+			}
+			if(count>0) {
+				packets.add(new PacketPlayOutMultiBlockChange(count, positions, chunk));
+				bytes+=MULTI_BLOCK_CHANGE_BYTES+count*MULTI_BLOCK_CHANGE_BYTES_PER_BLOCK;
+			}
+			for(Packet<?> packet : packets) {
+				viewers.a(packet);
+			}
+			blockPacketsSent+=packets.size()*viewers.c.size();
+			blockPacketBytesSent+=(long)bytes*viewers.c.size();
 		}
 	}
 
+	public long getBlockPacketsSent() {
+		return blockPacketsSent;
+	}
+
+	/**
+	 * @return an estimate of the bytes sent to players in changed block packets
+	 */
+	public long getBlockPacketBytesSent() {
+		return blockPacketBytesSent;
+	}
+
+	/**
+	 * Returns the indexes of the updates ordered by chunk and then by chunk section, keeping their original order
+	 * within a section. Explosions and anything else that isn't a block go last
+	 *
+	 * @param bySource - order by the section the block comes from instead of the one it goes to, updates without a
+	 * source block go last
+	 */
+	private Integer[] orderBySection(List<MapUpdateCommand> updatesInWorld, boolean bySource) {
+		Integer[] order=new Integer[updatesInWorld.size()];
+		final long[] keys=new long[order.length];
+		for(int index=0;index<order.length;index++) {
+			order[index]=index;
+			MapUpdateCommand c=updatesInWorld.get(index);
+			MovecraftLocation loc=null;
+			if(c!=null && c.getTypeID()>=0 && c.getWorldEditBaseBlock()==null) {
+				loc=bySource ? c.getOldBlockLocation() : c.getNewBlockLocation();
+			}
+			keys[index]=loc==null ? Long.MAX_VALUE : sectionKey(loc);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(keys[a], keys[b]);
+			}
+		});
+		return order;
+	}
+
+	private static long sectionKey(MovecraftLocation loc) {
+		return (Craft.chunkKey(loc.getX()>>4, loc.getZ()>>4)<<4) | (loc.getY()>>4);
+	}
+
+	/**
+	 * Brings the height map of the columns written in a chunk section up to date, since the blocks were put
+	 * straight into the section, and marks the chunk as changed
+	 *
+	 * @param columns - the columns written, indexed by z*16+x, cleared on return
+	 */
+	private void finishSection(net.minecraft.server.v1_10_R1.Chunk chunk, int sectionY, boolean[] columns) {
+		boolean changed=false;
+		for(int column=0;column<256;column++) {
+			if(!columns[column])
+				continue;
+			columns[column]=false;
+			changed=true;
+			int x=(chunk.locX<<4)+(column&15);
+			int z=(chunk.locZ<<4)+(column>>4);
+			int y=Math.max(chunk.heightMap[column], (sectionY<<4)+16);
+			// the height map stops at the first block that takes any light away, like Chunk.initLighting does, so water,
+			// ice and leaves count too
+			while(y>0) {
+				IBlockData below=chunk.getBlockData(new BlockPosition(x, y-1, z));
+				if(below.getBlock().m(below)>0)
+					break;
+				y--;
+			}
+			chunk.heightMap[column]=y;
+		}
+		if(changed) {
+			chunk.e();
+		}
+	}
+
+	/**
+	 * Moves the entities that were on the blocks of a batch, now that all of its blocks are in place
+	 */
+	private void moveEntities(World w, WorldUpdateBatch batch) {
+		for(EntityUpdateCommand entityUpdate : batch.entityMoves) {
+			Entity entity=entityUpdate.getEntity();
+			if(entity instanceof Player) {
+				net.minecraft.server.v1_10_R1.EntityPlayer craftPlayer = ((CraftPlayer) entity).getHandle();
+			    craftPlayer.setPositionRotation(entityUpdate.getNewLocation().getX(), entityUpdate.getNewLocation().getY(), entityUpdate.getNewLocation().getZ(), entityUpdate.getNewLocation().getYaw(), craftPlayer.pitch);
+			    Location location = new Location(null, craftPlayer.locX, craftPlayer.locY, craftPlayer.locZ, craftPlayer.yaw, craftPlayer.pitch);
+			    craftPlayer.playerConnection.teleport(location);
+				// send the blocks around the player to the player, so they don't fall through the floor or get bumped by other blocks
+				Player p=(Player)entity;
+				for ( MapUpdateCommand muc : getUpdatesNear(batch, entityUpdate.getNewLocation()) ) {
+					int disty=Math.abs(muc.getNewBlockLocation().getY()-entityUpdate.getNewLocation().getBlockY());
+					int distx=Math.abs(muc.getNewBlockLocation().getX()-entityUpdate.getNewLocation().getBlockX());
+					int distz=Math.abs(muc.getNewBlockLocation().getZ()-entityUpdate.getNewLocation().getBlockZ());
+					if(disty<2 && distx<2 && distz<2) {
+						Location nloc=new Location(w, muc.getNewBlockLocation().getX(), muc.getNewBlockLocation().getY(), muc.getNewBlockLocation().getZ());
+						p.sendBlockChange(nloc, muc.getTypeID(), muc.getDataID());
+					}
+				}
+			} else {
+				entity.teleport(entityUpdate.getNewLocation());
+			}
+		}
+	}
+
+	/**
+	 * Sends the signs that were moved to the players that track their chunks. The players tracking each chunk with
+	 * moved signs are found once, and then each player is sent all of their signs in one go
+	 */
+	private void sendSignsToPlayers(World w, List<MovecraftLocation> signLocations) {
+		if(signLocations.isEmpty())
+			return;
+		HashMap<Long, List<Sign>> signsByChunk=new HashMap<Long, List<Sign>>();
+		for(MovecraftLocation l : signLocations) {
+			BlockState bs= w.getBlockAt( l.getX(), l.getY(), l.getZ()).getState();
+			if(bs instanceof Sign) {
+				long key=Craft.chunkKey(l.getX()>>4, l.getZ()>>4);
+				List<Sign> chunkSigns=signsByChunk.get(key);
+				if(chunkSigns==null) {
+					chunkSigns=new ArrayList<Sign>();
+					signsByChunk.put(key, chunkSigns);
+				}
+				chunkSigns.add(( Sign ) bs);
+			}
+		}
+		HashMap<Player, List<Sign>> signsByPlayer=new HashMap<Player, List<Sign>>();
+		PlayerChunkMap playerChunkMap=((CraftWorld)w).getHandle().getPlayerChunkMap();
+		for(List<Sign> chunkSigns : signsByChunk.values()) {
+			PlayerChunk viewers=playerChunkMap.getChunk(chunkSigns.get(0).getX()>>4, chunkSigns.get(0).getZ()>>4);
+			if(viewers==null)
+				continue;
+			for(EntityPlayer viewer : viewers.c) {
+				Player p=viewer.getBukkitEntity();
+				List<Sign> playerSigns=signsByPlayer.get(p);
+				if(playerSigns==null) {
+					playerSigns=new ArrayList<Sign>();
+					signsByPlayer.put(p, playerSigns);
+				}
+				playerSigns.addAll(chunkSigns);
+			}
+		}
+		// this is necessary because signs do not get updated client side correctly without refreshing the chunks, which causes a memory leak in the clients
+		for(Map.Entry<Player, List<Sign>> entry : signsByPlayer.entrySet()) {
+			Player p=entry.getKey();
+			for(Sign sign : entry.getValue()) {
+				p.sendBlockChange(sign.getLocation(), 63, (byte) 0);
+				p.sendBlockChange(sign.getLocation(), sign.getTypeId(), sign.getRawData());
+			}
+		}
+		for(List<Sign> chunkSigns : signsByChunk.values()) {
+			for(Sign sign : chunkSigns) {
+				((CraftBlockState)sign).update(false, false);
+			}
+		}
+	}
+
+	/**
+	 * Sends particles along the outline of each craft that moved to the players that are too far away to see the
+	 * craft itself. The outline and its packets are worked out once per craft, the players are sorted into a grid of
+	 * SilhouetteViewDistance sized cells so only those in the cells around a craft are checked, and no more than
+	 * SilhouetteParticleBudget packets go out in a tick. The budget left is split evenly between every pair of craft
+	 * and viewer, and each call starts from another pair and other points of the outline, so that in a busy battle
+	 * every craft still shows up for every viewer
+	 */
+	private void sendSilhouettes(World w, Set<Craft> movedCrafts) {
+		if(Settings.SilhouetteViewDistance<=0 || Settings.SilhouetteBlockCount<=0 || movedCrafts.isEmpty())
+			return;
+		if(silhouettePacketsSent>=Settings.SilhouetteParticleBudget)
+			return;
+		int cellSize=Settings.SilhouetteViewDistance;
+		HashMap<Long, List<Player>> grid=new HashMap<Long, List<Player>>();
+		for(Player p : w.getPlayers()) {
+			long cell=Craft.chunkKey((int)Math.floor(p.getLocation().getBlockX()/(double)cellSize), (int)Math.floor(p.getLocation().getBlockZ()/(double)cellSize));
+			List<Player> cellPlayers=grid.get(cell);
+			if(cellPlayers==null) {
+				cellPlayers=new ArrayList<Player>();
+				grid.put(cell, cellPlayers);
+			}
+			cellPlayers.add(p);
+		}
+		if(grid.isEmpty())
+			return;
+		
+		List<PlayerConnection> pairViewers=new ArrayList<PlayerConnection>();
+		List<List<PacketPlayOutWorldParticles>> pairPackets=new ArrayList<List<PacketPlayOutWorldParticles>>();
+		for(Craft craft : movedCrafts) {
+			List<MovecraftLocation> outline=getOutline(craft, Settings.SilhouetteBlockCount);
+			if(outline.isEmpty())
+				continue;
+			int centerX=(craft.getMinX()+craft.getMaxX())>>1;
+			int centerY=(craft.getMinY()+craft.getMaxY())>>1;
+			int centerZ=(craft.getMinZ()+craft.getMaxZ())>>1;
+			List<PlayerConnection> viewers=new ArrayList<PlayerConnection>();
+			int cellX=(int)Math.floor(centerX/(double)cellSize);
+			int cellZ=(int)Math.floor(centerZ/(double)cellSize);
+			for(int cx=cellX-1;cx<=cellX+1;cx++) {
+				for(int cz=cellZ-1;cz<=cellZ+1;cz++) {
+					List<Player> cellPlayers=grid.get(Craft.chunkKey(cx, cz));
+					if(cellPlayers==null)
+						continue;
+					for(Player p : cellPlayers) {
+						int dx=centerX-p.getLocation().getBlockX();
+						int dy=centerY-p.getLocation().getBlockY();
+						int dz=centerZ-p.getLocation().getBlockZ();
+						int dist=dx*dx+dy*dy+dz*dz;
+						if((dist<Settings.SilhouetteViewDistance*Settings.SilhouetteViewDistance)&&(dist>32*32)) {
+							viewers.add(((CraftPlayer) p).getHandle().playerConnection);
+						}
+					}
+				}
+			}
+			if(viewers.isEmpty())
+				continue;
+			List<PacketPlayOutWorldParticles> packets=new ArrayList<PacketPlayOutWorldParticles>(outline.size());
+			for(MovecraftLocation l : outline) {
+				packets.add(new PacketPlayOutWorldParticles(EnumParticle.VILLAGER_HAPPY, true, (float)l.getX(), (float)l.getY(), (float)l.getZ(), (float)1, (float)1, (float)1, 0, 9));
+			}
+			for(PlayerConnection viewer : viewers) {
+				pairViewers.add(viewer);
+				pairPackets.add(packets);
+			}
+		}
+		if(pairViewers.isEmpty())
+			return;
+		
+		int pairs=pairViewers.size();
+		int share=Math.max(1, (Settings.SilhouetteParticleBudget-silhouettePacketsSent)/pairs);
+		silhouetteRound++;
+		for(int i=0;i<pairs;i++) {
+			int pair=(i+silhouetteRound)%pairs;
+			PlayerConnection viewer=pairViewers.get(pair);
+			List<PacketPlayOutWorldParticles> packets=pairPackets.get(pair);
+			int size=packets.size();
+			int points=Math.min(share, size);
+			// spread the points over the outline, starting a little further along every call
+			int offset=silhouetteRound%(size/points);
+			for(int point=0;point<points;point++) {
+				if(silhouettePacketsSent>=Settings.SilhouetteParticleBudget)
+					return;
+				viewer.sendPacket(packets.get(point*size/points+offset));
+				silhouettePacketsSent++;
+			}
+		}
+	}
+
+	/**
+	 * Returns up to the given number of points spread evenly along the outline of a craft, seen from above: the top of
+	 * every column of its hitbox that is on its edge
+	 */
+	private List<MovecraftLocation> getOutline(Craft craft, int maxPoints) {
+		List<MovecraftLocation> edge=new ArrayList<MovecraftLocation>();
+		int[][][] hb=craft.getHitBox();
+		if(hb==null)
+			return edge;
+		for(int x=0;x<hb.length;x++) {
+			if(hb[x]==null)
+				continue;
+			for(int z=0;z<hb[x].length;z++) {
+				if(hb[x][z]==null)
+					continue;
+				if(!hasColumn(hb, x-1, z) || !hasColumn(hb, x+1, z) || !hasColumn(hb, x, z-1) || !hasColumn(hb, x, z+1)) {
+					edge.add(new MovecraftLocation(craft.getMinX()+x, hb[x][z][1], craft.getMinZ()+z));
+				}
+			}
+		}
+		if(edge.size()<=maxPoints)
+			return edge;
+		List<MovecraftLocation> outline=new ArrayList<MovecraftLocation>(maxPoints);
+		for(int point=0;point<maxPoints;point++) {
+			outline.add(edge.get((int)((long)point*edge.size()/maxPoints)));
+		}
+		return outline;
+	}
+
+	private boolean hasColumn(int[][][] hb, int x, int z) {
+		return x>=0 && x<hb.length && hb[x]!=null && z>=0 && z<hb[x].length && hb[x][z]!=null;
+	}
+
 	private void processSign(TileEntity tileEntity, Craft craft) {
-		if(craft==null) {
+		// projectiles have no crew or status to show
+		if(craft==null || craft.getType().getCruiseOnPilot()) {
 			return;
 		}
 		TileEntitySign TESign=(TileEntitySign) tileEntity;
@@ -650,7 +1356,16 @@ public class MapUpdateManager extends BukkitRunnable {
 			return;
 		if(Settings.AllowCrewSigns && TESign.lines[0].toPlainText().equalsIgnoreCase("Crew:")) {
 			String crewName=TESign.lines[1].toPlainText();
-			Player crewPlayer=Movecraft.getInstance().getServer().getPlayer(crewName);
+			// crew are almost always aboard, so check the craft's passengers before asking the server
+			Player crewPlayer=null;
+			for(Player passenger : craft.getPassengers()) {
+				if(passenger.getName().equalsIgnoreCase(crewName)) {
+					crewPlayer=passenger;
+					break;
+				}
+			}
+			if(crewPlayer==null)
+				crewPlayer=Movecraft.getInstance().getServer().getPlayer(crewName);
 			if(crewPlayer!=null) {
 				Location loc=new Location(craft.getW(), TESign.getPosition().getX(), TESign.getPosition().getY(), TESign.getPosition().getZ());
 				loc=loc.subtract(0, 1, 0);
@@ -753,28 +1468,31 @@ public class MapUpdateManager extends BukkitRunnable {
 						foundBlocks.put(blockID, 1);
 					}
 					
-					if (blockID == 61) {
-						Block b = craft.getW().getBlockAt(ml.getX(), ml.getY(), ml.getZ());
-						InventoryHolder inventoryHolder = (InventoryHolder) craft.getW().getBlockAt(ml.getX(), ml.getY(),
-								ml.getZ()).getState();
-						if (inventoryHolder.getInventory().contains(263)
-								|| inventoryHolder.getInventory().contains(173)) {
-							ItemStack[] istack=inventoryHolder.getInventory().getContents();
-							for(ItemStack i : istack) {
-								if(i!=null) {
-									if(i.getTypeId()==263) {
-										fuel+=i.getAmount()*8;
-									}
-									if(i.getTypeId()==173) {
-										fuel+=i.getAmount()*80;
-									}
+					if (blockID != 0) {
+						totalBlocks++;
+					}
+				}
+				// only the furnaces from the craft's furnace index can hold fuel
+				for (MovecraftLocation ml : craft.getFurnaceList()) {
+					Block b = craft.getW().getBlockAt(ml.getX(), ml.getY(), ml.getZ());
+					if (b.getTypeId() != 61) {
+						continue;
+					}
+					InventoryHolder inventoryHolder = (InventoryHolder) b.getState();
+					if (inventoryHolder.getInventory().contains(263)
+							|| inventoryHolder.getInventory().contains(173)) {
+						ItemStack[] istack=inventoryHolder.getInventory().getContents();
+						for(ItemStack i : istack) {
+							if(i!=null) {
+								if(i.getTypeId()==263) {
+									fuel+=i.getAmount()*8;
+								}
+								if(i.getTypeId()==173) {
+									fuel+=i.getAmount()*80;
 								}
 							}
 						}
 					}
-					if (blockID != 0) {
-						totalBlocks++;
-					}
 				}
 				int signLine=1;
 				int signColumn=0;
@@ -852,6 +1570,9 @@ public class MapUpdateManager extends BukkitRunnable {
 					}
 				}
 				updateQty+=blockUpdatesPerCraft.get(craft);
+				if(craft.getLastUpdateReduction()>0) {
+					updateQty+=" -"+craft.getLastUpdateReduction()+"%";
+				}
 				TESign.lines[2]=new ChatComponentText(signText);
 				TESign.lines[3]=new ChatComponentText(updateQty);
 			}
@@ -911,60 +1632,89 @@ public class MapUpdateManager extends BukkitRunnable {
 	}
 	
     public boolean addWorldUpdate( World w, MapUpdateCommand[] mapUpdates, EntityUpdateCommand[] eUpdates, ItemDropUpdateCommand[] iUpdates) {
-		
-        if(mapUpdates!=null)	 {
-	        ArrayList<MapUpdateCommand> get = updates.get( w );	
-			if ( get != null ) {
-				updates.remove( w ); 
-				ArrayList<MapUpdateCommand> tempUpdates = new ArrayList<MapUpdateCommand>();
-		        tempUpdates.addAll(Arrays.asList(mapUpdates));
-				get.addAll( tempUpdates );
-			} else {
-				get = new ArrayList<MapUpdateCommand>(Arrays.asList(mapUpdates));		
-			}
-			updates.put(w, get);
-        }
-
-		//now do entity updates
-		if(eUpdates!=null) {
-			ArrayList<EntityUpdateCommand> eGet = entityUpdates.get( w );
-			if ( eGet != null ) {
-				entityUpdates.remove( w ); 
-				ArrayList<EntityUpdateCommand> tempEUpdates = new ArrayList<EntityUpdateCommand>();
-	            tempEUpdates.addAll(Arrays.asList(eUpdates));
-				eGet.addAll( tempEUpdates );
-			} else {
-				eGet = new ArrayList<EntityUpdateCommand>(Arrays.asList(eUpdates));
-			}
-			entityUpdates.put(w, eGet);
-		}
-                
-                //now do item drop updates
-		if(iUpdates!=null) {
-			ArrayList<ItemDropUpdateCommand> iGet = itemDropUpdates.get( w );
-			if ( iGet != null ) {
-				entityUpdates.remove( w );
-				ArrayList<ItemDropUpdateCommand> tempIDUpdates = new ArrayList<ItemDropUpdateCommand>();
-	            tempIDUpdates.addAll(Arrays.asList(iUpdates));
-				iGet.addAll( tempIDUpdates );
-			} else {
-				iGet = new ArrayList<ItemDropUpdateCommand>(Arrays.asList(iUpdates));
-			}
-			itemDropUpdates.put(w, iGet);
+		if ( w == null || ( mapUpdates == null && eUpdates == null && iUpdates == null ) )
+			return false;
+		ConcurrentLinkedQueue<WorldUpdateSubmission> queue = submissions.get( w );
+		if ( queue == null ) {
+			queue = new ConcurrentLinkedQueue<WorldUpdateSubmission>();
+			ConcurrentLinkedQueue<WorldUpdateSubmission> existing = submissions.putIfAbsent( w, queue );
+			if ( existing != null )
+				queue = existing;
 		}
-                
+		queue.add( new WorldUpdateSubmission( mapUpdates, eUpdates, iUpdates ) );
 		return false;
 	}
-	
-	private boolean setContainsConflict( ArrayList<MapUpdateCommand> set, MapUpdateCommand c ) {
-		for ( MapUpdateCommand command : set ) {
-			if( command!=null && c!=null)
-				if ( command.getNewBlockLocation().equals( c.getNewBlockLocation() ) ) {
-					return true;
+
+	/**
+	 * Puts the block updates handed in for a world into one list, keeping only one update for each block written.
+	 * Updates from the same craft replace its earlier ones, and when different crafts write the same block the one
+	 * kept is picked by updateWins, so it doesn't depend on which craft happened to hand in its updates first
+	 */
+	private List<MapUpdateCommand> mergeUpdates( World w, List<WorldUpdateSubmission> worldSubmissions ) {
+		List<MapUpdateCommand> merged=new ArrayList<MapUpdateCommand>();
+		HashMap<MovecraftLocation, Integer> writtenAt=new HashMap<MovecraftLocation, Integer>();
+		int conflicts=0;
+		for ( WorldUpdateSubmission submission : worldSubmissions ) {
+			if ( submission.mapUpdates == null )
+				continue;
+			for ( MapUpdateCommand c : submission.mapUpdates ) {
+				if ( c == null )
+					continue;
+				// explosions don't write a block, so they never conflict
+				if ( c.getTypeID() < 0 || c.getNewBlockLocation() == null ) {
+					merged.add( c );
+					continue;
+				}
+				Integer index=writtenAt.get( c.getNewBlockLocation() );
+				if ( index == null ) {
+					writtenAt.put( c.getNewBlockLocation(), merged.size() );
+					merged.add( c );
+					continue;
+				}
+				MapUpdateCommand previous=merged.get( index );
+				if ( previous.getCraft() == c.getCraft() ) {
+					merged.set( index, c );
+				} else {
+					conflicts++;
+					if ( updateWins( c, previous ) )
+						merged.set( index, c );
 				}
+			}
+		}
+		if ( conflicts > 0 && Settings.Debug ) {
+			Movecraft.getInstance().getServer().broadcastMessage( "Map update conflicts between crafts in " + w.getName() + ": " + conflicts );
 		}
+		return merged;
+	}
 
-		return false;
+	/**
+	 * Decides which of two updates from different crafts writing the same block is kept. An update that writes the
+	 * block wins over one that leaves it unchanged, a block wins over air, an update from a craft wins over one that
+	 * doesn't belong to any, then the bigger craft wins, and then the craft furthest to the west, the north and
+	 * finally the bottom
+	 *
+	 * @return true if c is kept over previous
+	 */
+	static boolean updateWins( MapUpdateCommand c, MapUpdateCommand previous ) {
+		if ( c.isUnchanged() != previous.isUnchanged() )
+			return previous.isUnchanged();
+		boolean isAir=c.getTypeID() == 0;
+		boolean previousIsAir=previous.getTypeID() == 0;
+		if ( isAir != previousIsAir )
+			return previousIsAir;
+		Craft craft=c.getCraft();
+		Craft previousCraft=previous.getCraft();
+		if ( craft == null || previousCraft == null )
+			return previousCraft == null;
+		int size=craft.getBlockList().length;
+		int previousSize=previousCraft.getBlockList().length;
+		if ( size != previousSize )
+			return size > previousSize;
+		if ( craft.getMinX() != previousCraft.getMinX() )
+			return craft.getMinX() < previousCraft.getMinX();
+		if ( craft.getMinZ() != previousCraft.getMinZ() )
+			return craft.getMinZ() < previousCraft.getMinZ();
+		return craft.getMinY() < previousCraft.getMinY();
 	}
 
 	private boolean arrayContains( int[] oA, int o ) {
@@ -73,21 +73,38 @@ public class MathUtils {
 	}
 
 	public static MovecraftLocation rotateVec( Rotation r, MovecraftLocation l ) {
-		MovecraftLocation newLocation = new MovecraftLocation( 0, l.getY(), 0 );
-		double theta;
+		// a quarter turn only swaps and negates the horizontal coordinates, so there is no need for cos/sin and rounding
 		if ( r == Rotation.CLOCKWISE ) {
-			theta = 0.5 * Math.PI;
+			return new MovecraftLocation( -l.getZ(), l.getY(), l.getX() );
 		} else {
-			theta = -1 * 0.5 * Math.PI;
+			return new MovecraftLocation( l.getZ(), l.getY(), -l.getX() );
 		}
+	}
 
-		int x = ( int ) Math.round( ( l.getX() * Math.cos( theta ) ) + ( l.getZ() * ( -1 * Math.sin( theta ) ) ) );
-		int z = ( int ) Math.round( ( l.getX() * Math.sin( theta ) ) + ( l.getZ() * Math.cos( theta ) ) );
-
-		newLocation.setX( x );
-		newLocation.setZ( z );
-
-		return newLocation;
+	/**
+	 * Rotates every location in the list a quarter turn around the origin point in a single integer pass
+	 *
+	 * @param r - direction of the rotation
+	 * @param originPoint - point to rotate around
+	 * @param blockList - locations to rotate, left untouched
+	 * @return the rotated locations, in the same order as blockList
+	 */
+	public static MovecraftLocation[] rotateBlockList( Rotation r, MovecraftLocation originPoint, MovecraftLocation[] blockList ) {
+		MovecraftLocation[] rotated = new MovecraftLocation[blockList.length];
+		int ox = originPoint.getX();
+		int oz = originPoint.getZ();
+		if ( r == Rotation.CLOCKWISE ) {
+			for ( int i = 0; i < blockList.length; i++ ) {
+				MovecraftLocation l = blockList[i];
+				rotated[i] = new MovecraftLocation( ox + oz - l.getZ(), l.getY(), oz - ox + l.getX() );
+			}
+		} else {
+			for ( int i = 0; i < blockList.length; i++ ) {
+				MovecraftLocation l = blockList[i];
+				rotated[i] = new MovecraftLocation( ox - oz + l.getZ(), l.getY(), oz + ox - l.getX() );
+			}
+		}
+		return rotated;
 	}
 
 	public static double[] rotateVec( Rotation r, double x, double z ) {
@@ -0,0 +1,113 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.craft;
+
+import net.countercraft.movecraft.utils.MathUtils;
+import net.countercraft.movecraft.utils.MovecraftLocation;
+import net.countercraft.movecraft.utils.Rotation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PendingMoveQueueTest {
+
+	@Test
+	public void testRotateAfterQueuedTranslation() throws Exception {
+		MovecraftLocation pivot = new MovecraftLocation( 10, 64, 10 );
+		MovecraftLocation[] blockList = new MovecraftLocation[]{ new MovecraftLocation( 8, 64, 9 ), new MovecraftLocation( 12, 65, 11 ), new MovecraftLocation( 10, 64, 14 ) };
+		MovecraftLocation offset = new MovecraftLocation( 3, 0, 0 );
+
+		PendingMoveQueue queue = new PendingMoveQueue();
+		queue.addTranslation( 1, 0, 0, 3 );
+		queue.addTranslation( 1, 0, 0, 3 );
+		queue.addTranslation( 1, 0, 0, 3 );
+		queue.addRotation( Rotation.CLOCKWISE, pivot );
+
+		// the three steps went in as one move, that still burns fuel for each of them
+		PendingMoveQueue.PendingMove move = queue.poll();
+		Assert.assertEquals( move.getDx(), 3 );
+		Assert.assertEquals( move.getTurns(), 0 );
+		Assert.assertEquals( move.getSteps(), 3 );
+
+		MovecraftLocation[] moved = new MovecraftLocation[blockList.length];
+		for ( int i = 0; i < blockList.length; i++ ) {
+			moved[i] = blockList[i].add( offset );
+		}
+		queue.craftTranslated( move.getDx(), move.getDy(), move.getDz() );
+
+		// the turn happens about the same spot of the craft as when it was asked for
+		PendingMoveQueue.PendingMove turn = queue.poll();
+		Assert.assertEquals( turn.getTurns(), 1 );
+		Assert.assertEquals( turn.getPivot(), pivot.add( offset ) );
+		MovecraftLocation[] rotated = MathUtils.rotateBlockList( Rotation.CLOCKWISE, turn.getPivot(), moved );
+		MovecraftLocation[] expected = MathUtils.rotateBlockList( Rotation.CLOCKWISE, pivot, blockList );
+		for ( int i = 0; i < blockList.length; i++ ) {
+			Assert.assertEquals( rotated[i], expected[i].add( offset ) );
+		}
+		Assert.assertNull( queue.poll() );
+	}
+
+	@Test
+	public void testClicksMergeIntoOneMove() throws Exception {
+		PendingMoveQueue queue = new PendingMoveQueue();
+		for ( int click = 0; click < 20; click++ ) {
+			queue.addTranslation( 1, 0, 0, PendingMoveQueue.MAX_MERGED_DISTANCE );
+		}
+
+		// single block clicks collapse into as few moves as the cap allows
+		PendingMoveQueue.PendingMove move = queue.poll();
+		Assert.assertEquals( move.getDx(), PendingMoveQueue.MAX_MERGED_DISTANCE );
+		Assert.assertEquals( move.getSteps(), PendingMoveQueue.MAX_MERGED_DISTANCE );
+		move = queue.poll();
+		Assert.assertEquals( move.getDx(), 20 - PendingMoveQueue.MAX_MERGED_DISTANCE );
+		Assert.assertNull( queue.poll() );
+	}
+
+	@Test
+	public void testMergedMovesAreCapped() throws Exception {
+		PendingMoveQueue queue = new PendingMoveQueue();
+		for ( int click = 0; click < 5; click++ ) {
+			queue.addTranslation( 0, 0, -1, 2 );
+		}
+
+		// five clicks with a cap of two blocks make three moves, not one five block jump
+		int[] expectedDz = new int[]{ -2, -2, -1 };
+		for ( int dz : expectedDz ) {
+			PendingMoveQueue.PendingMove move = queue.poll();
+			Assert.assertEquals( move.getDz(), dz );
+			Assert.assertEquals( move.getSteps(), -dz );
+		}
+		Assert.assertNull( queue.poll() );
+	}
+
+	@Test
+	public void testPivotFollowsAppliedTurn() throws Exception {
+		MovecraftLocation origin = new MovecraftLocation( 0, 64, 0 );
+		MovecraftLocation pivot = new MovecraftLocation( 5, 64, 2 );
+
+		PendingMoveQueue queue = new PendingMoveQueue();
+		queue.addRotation( Rotation.ANTICLOCKWISE, pivot );
+		queue.addRotation( Rotation.ANTICLOCKWISE, pivot );
+		queue.craftRotated( Rotation.CLOCKWISE, 1, origin );
+
+		PendingMoveQueue.PendingMove turn = queue.poll();
+		Assert.assertEquals( turn.getTurns(), 2 );
+		Assert.assertEquals( turn.getSteps(), 2 );
+		Assert.assertEquals( turn.getPivot(), MathUtils.rotateVec( Rotation.CLOCKWISE, pivot.subtract( origin ) ).add( origin ) );
+	}
+
+}
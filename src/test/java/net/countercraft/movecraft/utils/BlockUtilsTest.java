@@ -0,0 +1,86 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BlockUtilsTest {
+
+	@Test
+	public void testRotateDataMatchesLegacyRotation() throws Exception {
+		// data values by block data 0-15, as the per-block rotation before the lookup table produced them
+		assertRotatedData( 17, Rotation.CLOCKWISE, 0, 1, 2, 3, 8, 9, 10, 11, 4, 5, 6, 7, 0, 1, 2, 3 );
+		assertRotatedData( 17, Rotation.ANTICLOCKWISE, 0, 1, 2, 3, 8, 9, 10, 11, 4, 5, 6, 7, 0, 1, 2, 3 );
+		assertRotatedData( 23, Rotation.CLOCKWISE, 0, 1, 5, 4, 2, 3, 6, 7, 0, 1, 5, 4, 2, 3, 6, 7 );
+		assertRotatedData( 23, Rotation.ANTICLOCKWISE, 0, 1, 4, 5, 3, 2, 6, 7, 0, 1, 4, 5, 3, 2, 6, 7 );
+		assertRotatedData( 33, Rotation.CLOCKWISE, 0, 1, 5, 4, 2, 3, 6, 7, 8, 9, 13, 12, 10, 11, 14, 15 );
+		assertRotatedData( 33, Rotation.ANTICLOCKWISE, 0, 1, 4, 5, 3, 2, 6, 7, 8, 9, 12, 13, 11, 10, 14, 15 );
+		assertRotatedData( 50, Rotation.CLOCKWISE, 0, 3, 4, 2, 1, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 );
+		assertRotatedData( 50, Rotation.ANTICLOCKWISE, 0, 4, 3, 1, 2, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 );
+		assertRotatedData( 53, Rotation.CLOCKWISE, 2, 3, 1, 0, 6, 7, 5, 4, 2, 3, 1, 0, 6, 7, 5, 4 );
+		assertRotatedData( 53, Rotation.ANTICLOCKWISE, 3, 2, 0, 1, 7, 6, 4, 5, 3, 2, 0, 1, 7, 6, 4, 5 );
+		assertRotatedData( 63, Rotation.CLOCKWISE, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 0, 1, 2, 3 );
+		assertRotatedData( 63, Rotation.ANTICLOCKWISE, 12, 13, 14, 15, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 );
+		assertRotatedData( 64, Rotation.CLOCKWISE, 1, 2, 3, 0, 5, 6, 7, 4, 8, 9, 10, 11, 12, 13, 14, 15 );
+		assertRotatedData( 64, Rotation.ANTICLOCKWISE, 3, 0, 1, 2, 7, 4, 5, 6, 8, 9, 10, 11, 12, 13, 14, 15 );
+		assertRotatedData( 65, Rotation.CLOCKWISE, 0, 1, 5, 4, 2, 3, 6, 7, 0, 1, 5, 4, 2, 3, 6, 7 );
+		assertRotatedData( 65, Rotation.ANTICLOCKWISE, 0, 1, 4, 5, 3, 2, 6, 7, 0, 1, 4, 5, 3, 2, 6, 7 );
+		assertRotatedData( 68, Rotation.CLOCKWISE, 0, 1, 5, 4, 2, 3, 6, 7, 0, 1, 5, 4, 2, 3, 6, 7 );
+		assertRotatedData( 68, Rotation.ANTICLOCKWISE, 0, 1, 4, 5, 3, 2, 6, 7, 0, 1, 4, 5, 3, 2, 6, 7 );
+		assertRotatedData( 69, Rotation.CLOCKWISE, 7, 3, 4, 2, 1, 6, 5, 0, 15, 11, 12, 10, 9, 14, 13, 8 );
+		assertRotatedData( 69, Rotation.ANTICLOCKWISE, 7, 4, 3, 1, 2, 6, 5, 0, 15, 12, 11, 9, 10, 14, 13, 8 );
+		assertRotatedData( 77, Rotation.CLOCKWISE, 0, 3, 4, 2, 1, 5, 6, 7, 8, 11, 12, 10, 9, 13, 14, 15 );
+		assertRotatedData( 77, Rotation.ANTICLOCKWISE, 0, 4, 3, 1, 2, 5, 6, 7, 8, 12, 11, 9, 10, 13, 14, 15 );
+		assertRotatedData( 93, Rotation.CLOCKWISE, 1, 2, 3, 0, 5, 6, 7, 4, 9, 10, 11, 8, 13, 14, 15, 12 );
+		assertRotatedData( 93, Rotation.ANTICLOCKWISE, 3, 0, 1, 2, 7, 4, 5, 6, 11, 8, 9, 10, 15, 12, 13, 14 );
+		assertRotatedData( 96, Rotation.CLOCKWISE, 3, 2, 0, 1, 7, 6, 4, 5, 11, 10, 8, 9, 15, 14, 12, 13 );
+		assertRotatedData( 96, Rotation.ANTICLOCKWISE, 2, 3, 1, 0, 6, 7, 5, 4, 10, 11, 9, 8, 14, 15, 13, 12 );
+		assertRotatedData( 107, Rotation.CLOCKWISE, 1, 2, 3, 0, 5, 6, 7, 4, 1, 2, 3, 0, 5, 6, 7, 4 );
+		assertRotatedData( 107, Rotation.ANTICLOCKWISE, 3, 0, 1, 2, 7, 4, 5, 6, 3, 0, 1, 2, 7, 4, 5, 6 );
+
+		// blocks that don't face anywhere keep their data
+		assertRotatedData( 35, Rotation.CLOCKWISE, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 );
+		assertRotatedData( 54, Rotation.ANTICLOCKWISE, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 );
+	}
+
+	private void assertRotatedData( int id, Rotation rotation, int... expected ) {
+		for ( int data = 0; data < 16; data++ ) {
+			Assert.assertEquals( BlockUtils.rotateData( ( byte ) data, id, rotation ), ( byte ) expected[data], "id " + id + " data " + data + " " + rotation );
+		}
+	}
+
+	@Test
+	public void testRotateBlockListMatchesRotateVec() throws Exception {
+		MovecraftLocation originPoint = new MovecraftLocation( 13, 64, -7 );
+		MovecraftLocation[] blockList = new MovecraftLocation[]{ new MovecraftLocation( 13, 64, -7 ), new MovecraftLocation( 20, 70, -1 ), new MovecraftLocation( -5, 3, 12 ), new MovecraftLocation( 14, 64, -30 ) };
+		for ( Rotation rotation : new Rotation[]{ Rotation.CLOCKWISE, Rotation.ANTICLOCKWISE } ) {
+			MovecraftLocation[] rotated = MathUtils.rotateBlockList( rotation, originPoint, blockList );
+			for ( int i = 0; i < blockList.length; i++ ) {
+				double theta = rotation == Rotation.CLOCKWISE ? 0.5 * Math.PI : -0.5 * Math.PI;
+				MovecraftLocation centered = blockList[i].subtract( originPoint );
+				int x = ( int ) Math.round( ( centered.getX() * Math.cos( theta ) ) + ( centered.getZ() * ( -1 * Math.sin( theta ) ) ) );
+				int z = ( int ) Math.round( ( centered.getX() * Math.sin( theta ) ) + ( centered.getZ() * Math.cos( theta ) ) );
+				MovecraftLocation expected = new MovecraftLocation( x, centered.getY(), z ).add( originPoint );
+				Assert.assertEquals( rotated[i], expected );
+				Assert.assertEquals( MathUtils.rotateVec( rotation, centered ).add( originPoint ), expected );
+			}
+		}
+	}
+
+}
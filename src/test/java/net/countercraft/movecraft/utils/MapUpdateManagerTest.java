@@ -0,0 +1,75 @@
+/*
+ * This file is part of Movecraft.
+ *
+ *     Movecraft is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Movecraft is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Movecraft.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.countercraft.movecraft.utils;
+
+import org.bukkit.Location;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MapUpdateManagerTest {
+
+	@Test
+	public void testEntityOnUnchangedBlockIsMoved() throws Exception {
+		// a plate moves one block along a row of the same plates, so the block under the entity stays as it is
+		MapUpdateCommand plate = new MapUpdateCommand( new MovecraftLocation( 4, 63, 7 ), 5, ( byte ) 0, new MovecraftLocation( 5, 63, 7 ), 5, ( byte ) 0, null );
+		plate.setUnchanged( true );
+		EntityUpdateCommand entity = new EntityUpdateCommand( new Location( null, 4.5, 64, 7.5 ), new Location( null, 5.5, 64, 7.5 ), null );
+
+		MapUpdateManager.WorldUpdateSubmission submission = new MapUpdateManager.WorldUpdateSubmission( new MapUpdateCommand[]{ plate }, new EntityUpdateCommand[]{ entity }, null );
+		List<EntityUpdateCommand> moves = MapUpdateManager.collectEntityMoves( Arrays.asList( submission ) );
+
+		Assert.assertEquals( moves.size(), 1 );
+		Assert.assertSame( moves.get( 0 ), entity );
+	}
+
+	@Test
+	public void testWrittenBlockWinsOverUnchangedBlock() throws Exception {
+		MovecraftLocation target = new MovecraftLocation( 5, 63, 7 );
+		MapUpdateCommand unchanged = new MapUpdateCommand( new MovecraftLocation( 4, 63, 7 ), 5, ( byte ) 0, target, 5, ( byte ) 0, null );
+		unchanged.setUnchanged( true );
+		MapUpdateCommand written = new MapUpdateCommand( target, 0, ( byte ) 0, null );
+
+		Assert.assertTrue( MapUpdateManager.updateWins( written, unchanged ) );
+		Assert.assertFalse( MapUpdateManager.updateWins( unchanged, written ) );
+	}
+
+	@Test
+	public void testOnlyOverlappingSubmissionsWait() throws Exception {
+		// a craft moving one block along x, and a batch holding the blocks it takes and writes
+		MapUpdateCommand moved = new MapUpdateCommand( new MovecraftLocation( 4, 63, 7 ), 5, ( byte ) 0, new MovecraftLocation( 5, 63, 7 ), 5, ( byte ) 0, null );
+		MapUpdateManager.WorldUpdateSubmission pending = new MapUpdateManager.WorldUpdateSubmission( new MapUpdateCommand[]{ moved }, null, null );
+		Set<MovecraftLocation> positions = new HashSet<MovecraftLocation>();
+		MapUpdateManager.addPositions( positions, pending );
+
+		// a craft right above it doesn't wait
+		MapUpdateCommand beside = new MapUpdateCommand( new MovecraftLocation( 4, 64, 7 ), 5, ( byte ) 0, new MovecraftLocation( 5, 64, 7 ), 5, ( byte ) 0, null );
+		Assert.assertFalse( MapUpdateManager.touchesPositions( positions, new MapUpdateManager.WorldUpdateSubmission( new MapUpdateCommand[]{ beside }, null, null ) ) );
+
+		// a craft taking a block the batch writes waits, and so does one writing a block the batch takes
+		MapUpdateCommand taking = new MapUpdateCommand( new MovecraftLocation( 5, 63, 7 ), 5, ( byte ) 0, new MovecraftLocation( 6, 63, 7 ), 5, ( byte ) 0, null );
+		Assert.assertTrue( MapUpdateManager.touchesPositions( positions, new MapUpdateManager.WorldUpdateSubmission( new MapUpdateCommand[]{ taking }, null, null ) ) );
+		MapUpdateCommand writing = new MapUpdateCommand( new MovecraftLocation( 4, 63, 7 ), 0, ( byte ) 0, null );
+		Assert.assertTrue( MapUpdateManager.touchesPositions( positions, new MapUpdateManager.WorldUpdateSubmission( new MapUpdateCommand[]{ writing }, null, null ) ) );
+	}
+
+}